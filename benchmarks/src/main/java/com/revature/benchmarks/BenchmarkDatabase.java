@@ -0,0 +1,148 @@
+package com.revature.benchmarks;
+
+import com.revature.benchmarks.model.Author;
+import com.revature.benchmarks.model.Book;
+import com.revature.benchmarks.model.Review;
+import com.revature.utils.ConnectionSource;
+import com.revature.utils.Dao;
+import com.revature.utils.DaoManager;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Database and Daos shared by the benchmarks.
+ * By default every trial gets a fresh in-memory database. Setting -Dormate.url (with -Dormate.user and -Dormate.password)
+ * runs the same benchmarks end to end against a real database instead; its bench_* tables are dropped and recreated.
+ */
+public final class BenchmarkDatabase {
+    /**
+     * System properties selecting an end-to-end database
+     */
+    public static final String URL_PROPERTY = "ormate.url";
+    public static final String USER_PROPERTY = "ormate.user";
+    public static final String PASSWORD_PROPERTY = "ormate.password";
+
+    /**
+     * Connection source of the database
+     */
+    private final ConnectionSource connectionSource;
+    /**
+     * Daos of the benchmark entities, registered with the DaoManager
+     */
+    private final Dao<Author> authors = new Dao<>(Author.class);
+    private final Dao<Book> books = new Dao<>(Book.class);
+    private final Dao<Review> reviews = new Dao<>(Review.class);
+
+    /**
+     * Opens the database selected by the system properties and creates empty tables
+     * @param forceInMemory true to use an in-memory database even if an end-to-end url is set
+     */
+    public BenchmarkDatabase(boolean forceInMemory) {
+        String url = forceInMemory ? null : System.getProperty(URL_PROPERTY);
+        if(url == null) {
+            MemoryDriver.register();
+            connectionSource = new ConnectionSource(MemoryDriver.URL_PREFIX + UUID.randomUUID(), "", "");
+        } else {
+            connectionSource = new ConnectionSource(url, System.getProperty(USER_PROPERTY, ""), System.getProperty(PASSWORD_PROPERTY, ""));
+        }
+        DaoManager.addDao(authors, books, reviews);
+        reset();
+    }
+
+    /**
+     * Drops and recreates the benchmark tables
+     */
+    public void reset() {
+        try (Connection conn = connectionSource.connect(); Statement statement = conn.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS bench_review CASCADE");
+            statement.execute("DROP TABLE IF EXISTS bench_book CASCADE");
+            statement.execute("DROP TABLE IF EXISTS bench_author CASCADE");
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not drop benchmark tables", e);
+        }
+        if(!DaoManager.initializeSchema(connectionSource)) {
+            throw new IllegalStateException("Could not create benchmark tables");
+        }
+        authors.clearCache();
+        books.clearCache();
+        reviews.clearCache();
+    }
+
+    /**
+     * Fills the tables with the same number of authors, books and reviews
+     * Every book references one author, and every review references a book and an author
+     * @param rows number of rows per table
+     */
+    public void populate(int rows) {
+        List<Author> authorRows = new ArrayList<>(rows);
+        for(int i = 0; i < rows; i++) {
+            authorRows.add(new Author(i));
+        }
+        authors.insertAll(connectionSource, authorRows);
+        List<Book> bookRows = new ArrayList<>(rows);
+        for(int i = 0; i < rows; i++) {
+            bookRows.add(new Book(i, authorRows.get(i % authorRows.size())));
+        }
+        books.insertAll(connectionSource, bookRows);
+        List<Review> reviewRows = new ArrayList<>(rows);
+        for(int i = 0; i < rows; i++) {
+            reviewRows.add(new Review(i, bookRows.get(i % bookRows.size()), authorRows.get((i * 7) % authorRows.size())));
+        }
+        reviews.insertAll(connectionSource, reviewRows);
+    }
+
+    /**
+     * Drops the tables and closes the connection pool
+     */
+    public void close() {
+        try (Connection conn = connectionSource.connect(); Statement statement = conn.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS bench_review CASCADE");
+            statement.execute("DROP TABLE IF EXISTS bench_book CASCADE");
+            statement.execute("DROP TABLE IF EXISTS bench_author CASCADE");
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not drop benchmark tables", e);
+        } finally {
+            connectionSource.close();
+            if(connectionSource.getUrl().startsWith(MemoryDriver.URL_PREFIX)) {
+                MemoryDriver.drop(connectionSource.getUrl());
+            }
+        }
+    }
+
+    /**
+     * Gets the connection source of the database
+     * @return connection source
+     */
+    public ConnectionSource getConnectionSource() {
+        return connectionSource;
+    }
+
+    /**
+     * Gets the Dao of the entity without foreign keys
+     * @return author Dao
+     */
+    public Dao<Author> getAuthors() {
+        return authors;
+    }
+
+    /**
+     * Gets the Dao of the entity with one foreign key
+     * @return book Dao
+     */
+    public Dao<Book> getBooks() {
+        return books;
+    }
+
+    /**
+     * Gets the Dao of the entity with two foreign keys
+     * @return review Dao
+     */
+    public Dao<Review> getReviews() {
+        return reviews;
+    }
+}
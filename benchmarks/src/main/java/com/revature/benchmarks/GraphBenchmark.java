@@ -0,0 +1,69 @@
+package com.revature.benchmarks;
+
+import com.revature.benchmarks.model.Book;
+import com.revature.benchmarks.model.Review;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads of entities whose foreign keys pull in further rows: books reference authors,
+ * and reviews reference both a book, with its author, and a reviewing author
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GraphBenchmark {
+    /**
+     * Rows per table
+     */
+    @Param({"100", "1000", "10000"})
+    public int rows;
+
+    /**
+     * Benchmark database
+     */
+    private BenchmarkDatabase database;
+
+    @Setup
+    public void setUp() {
+        database = new BenchmarkDatabase(false);
+        database.populate(rows);
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public Review getReviewById() {
+        return database.getReviews().getById(database.getConnectionSource(), 1 + ThreadLocalRandom.current().nextInt(rows));
+    }
+
+    @Benchmark
+    public List<Book> getAllBooks() {
+        return database.getBooks().getAll(database.getConnectionSource());
+    }
+
+    @Benchmark
+    public List<Review> getAllReviews() {
+        return database.getReviews().getAll(database.getConnectionSource());
+    }
+}
@@ -0,0 +1,126 @@
+package com.revature.benchmarks;
+
+import com.revature.benchmarks.model.Author;
+import com.revature.benchmarks.model.Review;
+import com.revature.utils.BaseClass;
+import com.revature.utils.RowMapping;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Row mapping in isolation: each call maps a result set prebuilt from rows copied out of the in-memory database at setup,
+ * so no pool, statement or driver work is measured; foreign keys resolve against preloaded objects without a query
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingBenchmark {
+    /**
+     * Rows per table
+     */
+    @Param({"1000", "10000"})
+    public int rows;
+    /**
+     * Whether mapped objects keep a snapshot of their column values
+     */
+    @Param({"false", "true"})
+    public boolean dirtyTracking;
+
+    /**
+     * Benchmark database
+     */
+    private BenchmarkDatabase database;
+    /**
+     * Author rows and their column names
+     */
+    private List<Object[]> authorRows;
+    private List<String> authorColumns;
+    /**
+     * Review rows and their column names
+     */
+    private List<Object[]> reviewRows;
+    private List<String> reviewColumns;
+    /**
+     * Books and authors the reviews refer to
+     */
+    private List<BaseClass> referenced;
+
+    @Setup
+    public void setUp() throws SQLException {
+        database = new BenchmarkDatabase(true);
+        database.getAuthors().setDirtyTracking(dirtyTracking);
+        database.getReviews().setDirtyTracking(dirtyTracking);
+        database.populate(rows);
+        authorColumns = new ArrayList<>();
+        authorRows = copyRows(RowMapping.selectSql(database.getAuthors()), authorColumns);
+        reviewColumns = new ArrayList<>();
+        reviewRows = copyRows(RowMapping.selectSql(database.getReviews()), reviewColumns);
+        referenced = new ArrayList<>();
+        referenced.addAll(database.getAuthors().getAll(database.getConnectionSource()));
+        referenced.addAll(database.getBooks().getAll(database.getConnectionSource()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<Author> mapFlatRows() throws SQLException {
+        return RowMapping.map(database.getAuthors(), MemoryJdbc.resultSet(authorColumns, authorRows), Collections.emptyList());
+    }
+
+    @Benchmark
+    public List<Review> mapRowsWithForeignKeys() throws SQLException {
+        return RowMapping.map(database.getReviews(), MemoryJdbc.resultSet(reviewColumns, reviewRows), referenced);
+    }
+
+    /**
+     * Reads every row of a statement into memory
+     * @param sql statement to run
+     * @param columns receives the column names
+     * @return rows in order
+     * @throws SQLException if the statement fails
+     */
+    private List<Object[]> copyRows(String sql, List<String> columns) throws SQLException {
+        List<Object[]> copied = new ArrayList<>();
+        try (Connection conn = database.getConnectionSource().connect(); PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            ResultSetMetaData metaData = rs.getMetaData();
+            for(int i = 1; i <= metaData.getColumnCount(); i++) {
+                columns.add(metaData.getColumnLabel(i));
+            }
+            while(rs.next()) {
+                Object[] row = new Object[columns.size()];
+                for(int i = 0; i < row.length; i++) {
+                    row[i] = rs.getObject(i + 1);
+                }
+                copied.add(row);
+            }
+        }
+        return copied;
+    }
+}
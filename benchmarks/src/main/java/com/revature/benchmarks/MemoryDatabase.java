@@ -0,0 +1,426 @@
+package com.revature.benchmarks;
+
+import java.sql.Array;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Tables of one in-memory database, and the statements that run against them.
+ * Statements are parsed once per SQL string. There are no transactions: every write is visible immediately.
+ */
+final class MemoryDatabase {
+    /**
+     * Statement shapes the database understands
+     */
+    private static final Pattern CREATE_TABLE = Pattern.compile("CREATE TABLE IF NOT EXISTS (\\w+) \\((.*)\\)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern CREATE_INDEX = Pattern.compile("CREATE (UNIQUE )?INDEX .*", Pattern.CASE_INSENSITIVE);
+    private static final Pattern DROP_TABLE = Pattern.compile("DROP TABLE IF EXISTS (\\w+)( CASCADE)?", Pattern.CASE_INSENSITIVE);
+    private static final Pattern INSERT = Pattern.compile("INSERT INTO (\\w+)\\s*\\(([^)]*)\\) VALUES \\((.*)\\)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern SELECT = Pattern.compile("SELECT (.+?) FROM (\\w+)" +
+            "(?: WHERE id (= ANY\\(\\?\\)|= \\?|> \\?))?" +
+            "(?: ORDER BY id( DESC)?)?" +
+            "(?: LIMIT (\\?|\\d+))?" +
+            "(?: OFFSET (\\?|\\d+))?", Pattern.CASE_INSENSITIVE);
+    private static final Pattern UPDATE = Pattern.compile("UPDATE (\\w+) SET (.+) WHERE id = \\?", Pattern.CASE_INSENSITIVE);
+    private static final Pattern DELETE = Pattern.compile("DELETE FROM (\\w+) WHERE id (= ANY\\(\\?\\)|= \\?)", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * Tables by name
+     */
+    private final Map<String, Table> tables = new ConcurrentHashMap<>();
+    /**
+     * Parsed statements by SQL
+     */
+    private final Map<String, Command> commands = new ConcurrentHashMap<>();
+
+    /**
+     * Runs a statement
+     * @param sql statement
+     * @param params bound parameters in order
+     * @return rows, update count and generated keys
+     * @throws SQLException if the statement is not understood or names a missing table
+     */
+    Result execute(String sql, List<Object> params) throws SQLException {
+        Command command = commands.get(sql);
+        if(command == null) {
+            command = parse(sql);
+            commands.put(sql, command);
+        }
+        return command.run(params);
+    }
+
+    /**
+     * Parses a statement into a command
+     * @param sql statement
+     * @return the command
+     * @throws SQLException if the statement is not understood
+     */
+    private Command parse(String sql) throws SQLException {
+        String trimmed = sql.trim();
+        if(trimmed.endsWith(";")) {
+            trimmed = trimmed.substring(0, trimmed.length() - 1);
+        }
+        Matcher m;
+        if((m = CREATE_TABLE.matcher(trimmed)).matches()) {
+            String name = m.group(1);
+            List<String> columns = columnsOf(m.group(2));
+            return (params) -> {
+                tables.putIfAbsent(name, new Table(columns));
+                return Result.update(0);
+            };
+        }
+        if(CREATE_INDEX.matcher(trimmed).matches()) {
+            return (params) -> Result.update(0);
+        }
+        if((m = DROP_TABLE.matcher(trimmed)).matches()) {
+            String name = m.group(1);
+            return (params) -> {
+                tables.remove(name);
+                return Result.update(0);
+            };
+        }
+        if((m = INSERT.matcher(trimmed)).matches()) {
+            return insert(m.group(1), split(m.group(2)));
+        }
+        if((m = SELECT.matcher(trimmed)).matches()) {
+            return select(m.group(2), m.group(1), m.group(3), m.group(4) != null, m.group(5), m.group(6));
+        }
+        if((m = UPDATE.matcher(trimmed)).matches()) {
+            List<String> assigned = new ArrayList<>();
+            for(String assignment : split(m.group(2))) {
+                assigned.add(assignment.split("=")[0].trim());
+            }
+            return update(m.group(1), assigned);
+        }
+        if((m = DELETE.matcher(trimmed)).matches()) {
+            String name = m.group(1);
+            return (params) -> {
+                int deleted = 0;
+                for(Integer id : ids(params.get(0))) {
+                    if(table(name).rows.remove(id) != null) {
+                        deleted++;
+                    }
+                }
+                return Result.update(deleted);
+            };
+        }
+        throw new SQLFeatureNotSupportedException("The in-memory driver does not support: " + sql);
+    }
+
+    /**
+     * Builds an INSERT command
+     * @param name table name
+     * @param columns inserted columns in parameter order
+     * @return the command
+     */
+    private Command insert(String name, List<String> columns) {
+        return (params) -> {
+            Table table = table(name);
+            Object[] row = new Object[table.columns.size()];
+            for(int i = 0; i < columns.size(); i++) {
+                row[table.indexOf(columns.get(i))] = params.get(i);
+            }
+            int id = table.sequence.incrementAndGet();
+            row[0] = id;
+            table.rows.put(id, row);
+            return Result.inserted(id);
+        };
+    }
+
+    /**
+     * Builds a SELECT command
+     * @param name table name
+     * @param selection select list
+     * @param where id condition, or null
+     * @param descending true to order by id descending
+     * @param limit LIMIT value or ?, or null
+     * @param offset OFFSET value or ?, or null
+     * @return the command
+     */
+    private Command select(String name, String selection, String where, boolean descending, String limit, String offset) {
+        boolean count = selection.trim().equalsIgnoreCase("COUNT(*)");
+        List<String> selected = selection.trim().equals("*") || count ? null : split(selection);
+        return (params) -> {
+            Table table = table(name);
+            int p = 0;
+            Collection<Object[]> source;
+            if(where == null) {
+                source = descending ? table.rows.descendingMap().values() : table.rows.values();
+            } else if(where.startsWith("= ANY")) {
+                List<Object[]> found = new ArrayList<>();
+                for(Integer id : ids(params.get(p++))) {
+                    Object[] row = table.rows.get(id);
+                    if(row != null) {
+                        found.add(row);
+                    }
+                }
+                source = found;
+            } else if(where.startsWith("=")) {
+                Object[] row = table.rows.get(((Number) params.get(p++)).intValue());
+                source = row == null ? Collections.emptyList() : Collections.singletonList(row);
+            } else {
+                NavigableMap<Integer, Object[]> tail = table.rows.tailMap(((Number) params.get(p++)).intValue(), false);
+                source = descending ? tail.descendingMap().values() : tail.values();
+            }
+            long max = Long.MAX_VALUE;
+            if(limit != null) {
+                max = "?".equals(limit) ? ((Number) params.get(p++)).longValue() : Long.parseLong(limit);
+            }
+            long skip = 0;
+            if(offset != null) {
+                skip = "?".equals(offset) ? ((Number) params.get(p)).longValue() : Long.parseLong(offset);
+            }
+            if(count) {
+                return Result.rows(Collections.singletonList("count"), Collections.singletonList(new Object[] {(long) source.size()}));
+            }
+            int[] indexes = selected == null ? null : new int[selected.size()];
+            if(indexes != null) {
+                for(int i = 0; i < indexes.length; i++) {
+                    indexes[i] = table.indexOf(selected.get(i));
+                }
+            }
+            List<Object[]> rows = new ArrayList<>();
+            for(Object[] row : source) {
+                if(skip > 0) {
+                    skip--;
+                    continue;
+                }
+                if(rows.size() >= max) {
+                    break;
+                }
+                if(indexes == null) {
+                    rows.add(row.clone());
+                } else {
+                    Object[] projected = new Object[indexes.length];
+                    for(int i = 0; i < indexes.length; i++) {
+                        projected[i] = row[indexes[i]];
+                    }
+                    rows.add(projected);
+                }
+            }
+            return Result.rows(selected == null ? table.columns : selected, rows);
+        };
+    }
+
+    /**
+     * Builds an UPDATE command
+     * @param name table name
+     * @param assigned assigned columns in parameter order; the id parameter follows them
+     * @return the command
+     */
+    private Command update(String name, List<String> assigned) {
+        return (params) -> {
+            Table table = table(name);
+            Object[] row = table.rows.get(((Number) params.get(assigned.size())).intValue());
+            if(row == null) {
+                return Result.update(0);
+            }
+            Object[] updated = row.clone();
+            for(int i = 0; i < assigned.size(); i++) {
+                updated[table.indexOf(assigned.get(i))] = params.get(i);
+            }
+            table.rows.put((Integer) row[0], updated);
+            return Result.update(1);
+        };
+    }
+
+    /**
+     * Gets a table
+     * @param name table name
+     * @return the table
+     * @throws SQLException if there is no such table
+     */
+    private Table table(String name) throws SQLException {
+        Table table = tables.get(name);
+        if(table == null) {
+            throw new SQLException("relation \"" + name + "\" does not exist");
+        }
+        return table;
+    }
+
+    /**
+     * Reads the ids bound to an id parameter
+     * @param param an Integer, or an Array of them
+     * @return the ids
+     * @throws SQLException if the array cannot be read
+     */
+    private static List<Integer> ids(Object param) throws SQLException {
+        if(param instanceof Array) {
+            List<Integer> ids = new ArrayList<>();
+            for(Object id : (Object[]) ((Array) param).getArray()) {
+                ids.add(((Number) id).intValue());
+            }
+            return ids;
+        }
+        return Collections.singletonList(((Number) param).intValue());
+    }
+
+    /**
+     * Reads the column names from the definitions of a CREATE TABLE statement; the id column comes first
+     * @param definitions column and constraint definitions
+     * @return column names
+     */
+    private static List<String> columnsOf(String definitions) {
+        List<String> columns = new ArrayList<>();
+        for(String definition : split(definitions)) {
+            String upper = definition.toUpperCase();
+            if(upper.startsWith("FOREIGN KEY") || upper.startsWith("PRIMARY KEY") || upper.startsWith("UNIQUE") || upper.startsWith("CONSTRAINT")) {
+                continue;
+            }
+            columns.add(definition.split("\\s+")[0]);
+        }
+        return columns;
+    }
+
+    /**
+     * Splits a comma separated list, ignoring commas inside parentheses
+     * @param list list to split
+     * @return trimmed items
+     */
+    private static List<String> split(String list) {
+        List<String> items = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for(int i = 0; i < list.length(); i++) {
+            char c = list.charAt(i);
+            if(c == '(') {
+                depth++;
+            } else if(c == ')') {
+                depth--;
+            } else if(c == ',' && depth == 0) {
+                items.add(list.substring(start, i).trim());
+                start = i + 1;
+            }
+        }
+        items.add(list.substring(start).trim());
+        return items;
+    }
+
+    /**
+     * A parsed statement
+     */
+    interface Command {
+        /**
+         * Runs the statement
+         * @param params bound parameters in order
+         * @return the result
+         * @throws SQLException if the statement fails
+         */
+        Result run(List<Object> params) throws SQLException;
+    }
+
+    /**
+     * Rows of one table, by id
+     */
+    static final class Table {
+        /**
+         * Column names; id first
+         */
+        final List<String> columns;
+        /**
+         * Rows by id, each holding the column values in column order
+         */
+        final ConcurrentSkipListMap<Integer, Object[]> rows = new ConcurrentSkipListMap<>();
+        /**
+         * Last generated id
+         */
+        final AtomicInteger sequence = new AtomicInteger();
+
+        /**
+         * Table constructor
+         * @param columns column names; id first
+         */
+        Table(List<String> columns) {
+            this.columns = columns;
+        }
+
+        /**
+         * Finds a column
+         * @param column column name
+         * @return index of the column
+         * @throws SQLException if there is no such column
+         */
+        int indexOf(String column) throws SQLException {
+            int index = columns.indexOf(column);
+            if(index < 0) {
+                throw new SQLException("column \"" + column + "\" does not exist");
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Outcome of a statement
+     */
+    static final class Result {
+        /**
+         * Column names of the rows, or null for statements that return none
+         */
+        final List<String> columns;
+        /**
+         * Returned rows
+         */
+        final List<Object[]> rows;
+        /**
+         * Number of rows written
+         */
+        final int updateCount;
+        /**
+         * Id generated by an insert, or 0
+         */
+        final int generatedKey;
+
+        /**
+         * Result constructor
+         * @param columns column names of the rows
+         * @param rows returned rows
+         * @param updateCount number of rows written
+         * @param generatedKey id generated by an insert
+         */
+        private Result(List<String> columns, List<Object[]> rows, int updateCount, int generatedKey) {
+            this.columns = columns;
+            this.rows = rows;
+            this.updateCount = updateCount;
+            this.generatedKey = generatedKey;
+        }
+
+        /**
+         * Result of a query
+         * @param columns column names
+         * @param rows returned rows
+         * @return the result
+         */
+        static Result rows(List<String> columns, List<Object[]> rows) {
+            return new Result(columns, rows, -1, 0);
+        }
+
+        /**
+         * Result of a statement that returns no rows
+         * @param count number of rows written
+         * @return the result
+         */
+        static Result update(int count) {
+            return new Result(null, Collections.emptyList(), count, 0);
+        }
+
+        /**
+         * Result of an insert
+         * @param id generated id
+         * @return the result
+         */
+        static Result inserted(int id) {
+            return new Result(null, Collections.emptyList(), 1, id);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.revature.benchmarks;
+
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * JDBC driver for in-memory databases at jdbc:ormate-memory:&lt;name&gt;.
+ * It understands only the statements the ORM issues, and executes them with almost no overhead,
+ * so benchmarks against it measure the ORM's own work: pooling, statement building, binding and row mapping.
+ */
+public final class MemoryDriver implements Driver {
+    /**
+     * Prefix of the urls this driver accepts
+     */
+    public static final String URL_PREFIX = "jdbc:ormate-memory:";
+
+    /**
+     * Databases by name
+     */
+    private static final Map<String, MemoryDatabase> databases = new ConcurrentHashMap<>();
+
+    static {
+        try {
+            DriverManager.registerDriver(new MemoryDriver());
+        } catch (SQLException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Makes sure the driver is registered with the DriverManager
+     */
+    public static void register() {
+        // registration happens in the static initializer
+    }
+
+    /**
+     * Drops an in-memory database
+     * @param url url of the database
+     */
+    public static void drop(String url) {
+        databases.remove(url.substring(URL_PREFIX.length()));
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) {
+        if(!acceptsURL(url)) {
+            return null;
+        }
+        return MemoryJdbc.connection(databases.computeIfAbsent(url.substring(URL_PREFIX.length()), (n) -> new MemoryDatabase()));
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+        return url != null && url.startsWith(URL_PREFIX);
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+}
@@ -0,0 +1,392 @@
+package com.revature.benchmarks;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Connection, statement and result set proxies over a MemoryDatabase.
+ * Only the JDBC methods the ORM calls are implemented; any other call fails loudly so the benchmarks never measure a silent no-op.
+ */
+final class MemoryJdbc {
+    /**
+     * Not instantiable
+     */
+    private MemoryJdbc() {
+    }
+
+    /**
+     * Opens a connection
+     * @param database database the connection runs statements against
+     * @return the connection
+     */
+    static Connection connection(MemoryDatabase database) {
+        return proxy(Connection.class, new ConnectionHandler(database));
+    }
+
+    /**
+     * Creates a proxy implementing a JDBC interface
+     * @param type interface
+     * @param handler handler for its methods
+     * @param <I> interface type
+     * @return the proxy
+     */
+    private static <I> I proxy(Class<I> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(MemoryJdbc.class.getClassLoader(), new Class<?>[] {type}, handler));
+    }
+
+    /**
+     * Fails a call to a JDBC method the driver does not implement
+     * @param method method that was called
+     * @return never returns
+     */
+    private static UnsupportedOperationException unsupported(Method method) {
+        return new UnsupportedOperationException("The in-memory driver does not implement " +
+                method.getDeclaringClass().getSimpleName() + "." + method.getName());
+    }
+
+    /**
+     * Handles the methods of Object on a proxy
+     * @param proxy the proxy
+     * @param method method that was called
+     * @param args call arguments
+     * @return the result
+     */
+    private static Object objectMethod(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                return proxy.getClass().getSimpleName();
+        }
+    }
+
+    /**
+     * Connection methods
+     */
+    private static final class ConnectionHandler implements InvocationHandler {
+        /**
+         * Database statements run against
+         */
+        private final MemoryDatabase database;
+        /**
+         * Connection state
+         */
+        private boolean closed = false;
+        private boolean autoCommit = true;
+
+        /**
+         * ConnectionHandler constructor
+         * @param database database statements run against
+         */
+        ConnectionHandler(MemoryDatabase database) {
+            this.database = database;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            if(method.getDeclaringClass() == Object.class) {
+                return objectMethod(proxy, method, args);
+            }
+            switch (method.getName()) {
+                case "prepareStatement":
+                    boolean keys = args.length == 2 && (args[1] instanceof String[] || Integer.valueOf(Statement.RETURN_GENERATED_KEYS).equals(args[1]));
+                    return proxy(PreparedStatement.class, new StatementHandler(database, (String) args[0], keys));
+                case "createStatement":
+                    return proxy(Statement.class, new StatementHandler(database, null, false));
+                case "createArrayOf":
+                    Object[] elements = (Object[]) args[1];
+                    return proxy(Array.class, (p, m, a) -> {
+                        if(m.getDeclaringClass() == Object.class) {
+                            return objectMethod(p, m, a);
+                        }
+                        if("getArray".equals(m.getName())) {
+                            return elements;
+                        }
+                        if("free".equals(m.getName())) {
+                            return null;
+                        }
+                        throw unsupported(m);
+                    });
+                case "setAutoCommit":
+                    autoCommit = (Boolean) args[0];
+                    return null;
+                case "getAutoCommit":
+                    return autoCommit;
+                case "commit":
+                case "rollback":
+                case "clearWarnings":
+                    return null;
+                case "close":
+                    closed = true;
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "isValid":
+                    return !closed;
+                default:
+                    throw unsupported(method);
+            }
+        }
+    }
+
+    /**
+     * Statement and PreparedStatement methods
+     */
+    private static final class StatementHandler implements InvocationHandler {
+        /**
+         * Database the statement runs against
+         */
+        private final MemoryDatabase database;
+        /**
+         * SQL of a prepared statement, or null for a plain statement
+         */
+        private final String sql;
+        /**
+         * Whether generated ids are returned
+         */
+        private final boolean returnKeys;
+        /**
+         * Parameters bound for the next execution
+         */
+        private final List<Object> params = new ArrayList<>();
+        /**
+         * Parameters of each batched execution
+         */
+        private final List<List<Object>> batch = new ArrayList<>();
+        /**
+         * Ids generated by the last execution
+         */
+        private final List<Object[]> generatedKeys = new ArrayList<>();
+        /**
+         * Whether the statement has been closed
+         */
+        private boolean closed = false;
+
+        /**
+         * StatementHandler constructor
+         * @param database database the statement runs against
+         * @param sql SQL of a prepared statement, or null
+         * @param returnKeys whether generated ids are returned
+         */
+        StatementHandler(MemoryDatabase database, String sql, boolean returnKeys) {
+            this.database = database;
+            this.sql = sql;
+            this.returnKeys = returnKeys;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws SQLException {
+            if(method.getDeclaringClass() == Object.class) {
+                return objectMethod(proxy, method, args);
+            }
+            switch (method.getName()) {
+                case "setObject":
+                case "setInt":
+                case "setLong":
+                case "setString":
+                case "setBoolean":
+                case "setDouble":
+                case "setArray":
+                case "setNull":
+                    int index = (Integer) args[0] - 1;
+                    while(params.size() <= index) {
+                        params.add(null);
+                    }
+                    params.set(index, "setNull".equals(method.getName()) ? null : args[1]);
+                    return null;
+                case "clearParameters":
+                    params.clear();
+                    return null;
+                case "executeQuery":
+                    MemoryDatabase.Result result = run(args == null ? sql : (String) args[0], params);
+                    return resultSet(result.columns, result.rows);
+                case "executeUpdate":
+                    generatedKeys.clear();
+                    return run(args == null ? sql : (String) args[0], params).updateCount;
+                case "execute":
+                    generatedKeys.clear();
+                    return run(args == null ? sql : (String) args[0], params).columns != null;
+                case "addBatch":
+                    batch.add(new ArrayList<>(params));
+                    return null;
+                case "clearBatch":
+                    batch.clear();
+                    return null;
+                case "executeBatch":
+                    generatedKeys.clear();
+                    int[] counts = new int[batch.size()];
+                    for(int i = 0; i < counts.length; i++) {
+                        counts[i] = run(sql, batch.get(i)).updateCount;
+                    }
+                    batch.clear();
+                    return counts;
+                case "getGeneratedKeys":
+                    return resultSet(Collections.singletonList("id"), new ArrayList<>(generatedKeys));
+                case "setFetchSize":
+                case "setQueryTimeout":
+                    return null;
+                case "close":
+                    closed = true;
+                    return null;
+                case "isClosed":
+                    return closed;
+                default:
+                    throw unsupported(method);
+            }
+        }
+
+        /**
+         * Runs the statement, collecting the generated id
+         * @param statement SQL to run
+         * @param values bound parameters
+         * @return the result
+         * @throws SQLException if the statement fails
+         */
+        private MemoryDatabase.Result run(String statement, List<Object> values) throws SQLException {
+            MemoryDatabase.Result result = database.execute(statement, values);
+            if(returnKeys && result.generatedKey != 0) {
+                generatedKeys.add(new Object[] {result.generatedKey});
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Creates a forward-only result set over rows
+     * @param columns column names
+     * @param rows rows in order
+     * @return the result set
+     */
+    static ResultSet resultSet(List<String> columns, List<Object[]> rows) {
+        return proxy(ResultSet.class, new ResultSetHandler(columns == null ? Collections.emptyList() : columns, rows));
+    }
+
+    /**
+     * ResultSet and ResultSetMetaData methods
+     */
+    private static final class ResultSetHandler implements InvocationHandler {
+        /**
+         * Column names
+         */
+        private final List<String> columns;
+        /**
+         * Rows in order
+         */
+        private final List<Object[]> rows;
+        /**
+         * Index of the current row
+         */
+        private int position = -1;
+        /**
+         * Whether the last value read was null
+         */
+        private boolean wasNull = false;
+
+        /**
+         * ResultSetHandler constructor
+         * @param columns column names
+         * @param rows rows in order
+         */
+        ResultSetHandler(List<String> columns, List<Object[]> rows) {
+            this.columns = columns;
+            this.rows = rows;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws SQLException {
+            if(method.getDeclaringClass() == Object.class) {
+                return objectMethod(proxy, method, args);
+            }
+            switch (method.getName()) {
+                case "next":
+                    return ++position < rows.size();
+                case "wasNull":
+                    return wasNull;
+                case "getObject":
+                    return value(args[0]);
+                case "getString":
+                    Object string = value(args[0]);
+                    return string == null ? null : string.toString();
+                case "getInt":
+                    Object i = value(args[0]);
+                    return i == null ? 0 : ((Number) i).intValue();
+                case "getLong":
+                    Object l = value(args[0]);
+                    return l == null ? 0L : ((Number) l).longValue();
+                case "getDouble":
+                    Object d = value(args[0]);
+                    return d == null ? 0.0 : ((Number) d).doubleValue();
+                case "getBoolean":
+                    Object b = value(args[0]);
+                    return b != null && (Boolean) b;
+                case "findColumn":
+                    return column(args[0]) + 1;
+                case "getMetaData":
+                    return proxy(ResultSetMetaData.class, (p, m, a) -> {
+                        if(m.getDeclaringClass() == Object.class) {
+                            return objectMethod(p, m, a);
+                        }
+                        switch (m.getName()) {
+                            case "getColumnCount":
+                                return columns.size();
+                            case "getColumnName":
+                            case "getColumnLabel":
+                                return columns.get((Integer) a[0] - 1);
+                            default:
+                                throw unsupported(m);
+                        }
+                    });
+                case "setFetchSize":
+                case "close":
+                    return null;
+                case "isClosed":
+                    return false;
+                default:
+                    throw unsupported(method);
+            }
+        }
+
+        /**
+         * Reads a value of the current row
+         * @param column 1-based column index, or column name
+         * @return the value
+         * @throws SQLException if there is no current row or no such column
+         */
+        private Object value(Object column) throws SQLException {
+            if(position < 0 || position >= rows.size()) {
+                throw new SQLException("No current row");
+            }
+            Object value = rows.get(position)[column(column)];
+            wasNull = value == null;
+            return value;
+        }
+
+        /**
+         * Resolves a column reference
+         * @param column 1-based column index, or column name
+         * @return 0-based column index
+         * @throws SQLException if there is no such column
+         */
+        private int column(Object column) throws SQLException {
+            int index = column instanceof Integer ? (Integer) column - 1 : columns.indexOf(column);
+            if(index < 0 || index >= columns.size()) {
+                throw new SQLException("No column " + column + " in " + Arrays.toString(columns.toArray()));
+            }
+            return index;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.revature.benchmarks;
+
+import com.revature.benchmarks.model.Author;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserts, bulk inserts and updates
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WriteBenchmark {
+    /**
+     * Rows per insertAll call
+     */
+    @Param({"100", "1000"})
+    public int batch;
+    /**
+     * Whether updates only write the columns that changed
+     */
+    @Param({"false", "true"})
+    public boolean dirtyTracking;
+
+    /**
+     * Rows the update benchmark picks from
+     */
+    private static final int UPDATE_ROWS = 1000;
+
+    /**
+     * Benchmark database
+     */
+    private BenchmarkDatabase database;
+    /**
+     * Loaded rows the update benchmark modifies
+     */
+    private List<Author> loaded;
+
+    @Setup
+    public void setUp() {
+        database = new BenchmarkDatabase(false);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetTables() {
+        database.reset();
+        database.getAuthors().setDirtyTracking(dirtyTracking);
+        database.populate(UPDATE_ROWS);
+        loaded = database.getAuthors().getAll(database.getConnectionSource());
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public Author insert() {
+        return database.getAuthors().insert(database.getConnectionSource(), new Author(ThreadLocalRandom.current().nextInt()));
+    }
+
+    @Benchmark
+    public List<Author> insertAll() {
+        List<Author> authors = new ArrayList<>(batch);
+        for(int i = 0; i < batch; i++) {
+            authors.add(new Author(i));
+        }
+        return database.getAuthors().insertAll(database.getConnectionSource(), authors);
+    }
+
+    @Benchmark
+    public Author updateById() {
+        Author author = loaded.get(ThreadLocalRandom.current().nextInt(loaded.size()));
+        author.setAge(author.getAge() + 1);
+        return database.getAuthors().updateById(database.getConnectionSource(), author.getId(), author);
+    }
+}
@@ -0,0 +1,53 @@
+package com.revature.benchmarks.model;
+
+import com.revature.annotations.Column;
+import com.revature.annotations.Entity;
+import com.revature.utils.BaseClass;
+
+/**
+ * Entity without foreign keys
+ */
+@Entity(tableName = "bench_author")
+public class Author extends BaseClass {
+    @Column(columnName = "name")
+    private String name;
+    @Column(columnName = "email")
+    private String email;
+    @Column(columnName = "age")
+    private int age;
+    @Column(columnName = "active")
+    private boolean active;
+
+    /**
+     * No-args constructor used when mapping rows
+     */
+    public Author() {
+    }
+
+    /**
+     * Author constructor
+     * @param n sequence number the column values are derived from
+     */
+    public Author(int n) {
+        this.name = "author " + n;
+        this.email = "author" + n + "@example.com";
+        this.age = 20 + n % 50;
+        this.active = n % 3 != 0;
+    }
+
+    /**
+     * Gets the age
+     * @return age
+     */
+    public int getAge() {
+        return age;
+    }
+
+    /**
+     * Sets the age
+     * @param age age
+     */
+    public void setAge(int age) {
+        this.age = age;
+    }
+}
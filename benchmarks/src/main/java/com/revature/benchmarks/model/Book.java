@@ -0,0 +1,44 @@
+package com.revature.benchmarks.model;
+
+import com.revature.annotations.Column;
+import com.revature.annotations.Entity;
+import com.revature.annotations.ForeignKey;
+import com.revature.utils.BaseClass;
+
+/**
+ * Entity with one foreign key
+ */
+@Entity(tableName = "bench_book")
+public class Book extends BaseClass {
+    @Column(columnName = "title")
+    private String title;
+    @Column(columnName = "pages")
+    private long pages;
+    @ForeignKey(colName = "author_id", refClass = Author.class)
+    private Author author;
+
+    /**
+     * No-args constructor used when mapping rows
+     */
+    public Book() {
+    }
+
+    /**
+     * Book constructor
+     * @param n sequence number the column values are derived from
+     * @param author author of the book
+     */
+    public Book(int n, Author author) {
+        this.title = "book " + n;
+        this.pages = 100 + n % 900;
+        this.author = author;
+    }
+
+    /**
+     * Gets the author
+     * @return author
+     */
+    public Author getAuthor() {
+        return author;
+    }
+}
@@ -0,0 +1,48 @@
+package com.revature.benchmarks.model;
+
+import com.revature.annotations.Column;
+import com.revature.annotations.Entity;
+import com.revature.annotations.ForeignKey;
+import com.revature.utils.BaseClass;
+
+/**
+ * Entity with two foreign keys, one of which has a foreign key of its own
+ */
+@Entity(tableName = "bench_review")
+public class Review extends BaseClass {
+    @Column(columnName = "rating")
+    private int rating;
+    @Column(columnName = "body")
+    private String body;
+    @ForeignKey(colName = "book_id", refClass = Book.class)
+    private Book book;
+    @ForeignKey(colName = "reviewer_id", refClass = Author.class)
+    private Author reviewer;
+
+    /**
+     * No-args constructor used when mapping rows
+     */
+    public Review() {
+    }
+
+    /**
+     * Review constructor
+     * @param n sequence number the column values are derived from
+     * @param book reviewed book
+     * @param reviewer author of the review
+     */
+    public Review(int n, Book book, Author reviewer) {
+        this.rating = 1 + n % 5;
+        this.body = "review " + n;
+        this.book = book;
+        this.reviewer = reviewer;
+    }
+
+    /**
+     * Gets the reviewed book
+     * @return book
+     */
+    public Book getBook() {
+        return book;
+    }
+}
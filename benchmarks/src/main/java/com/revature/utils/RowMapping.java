@@ -0,0 +1,46 @@
+package com.revature.utils;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Entry point for benchmarking a Dao's row mapping without a connection, statement or query.
+ * It lives in the library's package so it can reach the package-private mapping code; it is only part of the benchmark jar.
+ */
+public final class RowMapping {
+    /**
+     * Not instantiable
+     */
+    private RowMapping() {
+    }
+
+    /**
+     * Maps every row of a result set the way the Dao maps the rows of its own SELECT
+     * Foreign keys are resolved against the preloaded objects only, so no query runs; every referenced row must be preloaded
+     * @param dao dao whose entity the rows are mapped to
+     * @param rs result set with the id and every column of the table
+     * @param preloaded objects the foreign keys of the rows refer to
+     * @param <T> entity type
+     * @return objects in row order
+     * @throws SQLException if a row cannot be read
+     */
+    public static <T> List<T> map(Dao<T> dao, ResultSet rs, Collection<? extends BaseClass> preloaded) throws SQLException {
+        LoadContext context = new LoadContext(null);
+        for(BaseClass object : preloaded) {
+            context.put(object.getClass(), object.getId(), object);
+        }
+        return dao.mapRows(null, rs, selectSql(dao), context);
+    }
+
+    /**
+     * Gets the SELECT the mapped rows stand in for; it also keys the Dao's row decoder
+     * @param dao dao whose table is selected
+     * @param <T> entity type
+     * @return SELECT naming the id and every column of the table
+     */
+    public static <T> String selectSql(Dao<T> dao) {
+        return "SELECT " + dao.getSelectColumns() + " FROM " + dao.getTableName();
+    }
+}
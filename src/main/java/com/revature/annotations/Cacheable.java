@@ -0,0 +1,22 @@
+package com.revature.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Cacheable {
+    /**
+     * Maximum number of rows kept in the cache; least recently used rows are evicted first
+     * @return maximum cache size
+     */
+    int maxSize() default 1000;
+
+    /**
+     * How long a cached row stays valid
+     * @return time to live in seconds; 0 keeps rows until they are evicted or invalidated
+     */
+    long ttlSeconds() default 300;
+}
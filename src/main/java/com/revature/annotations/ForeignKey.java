@@ -19,4 +19,10 @@ public @interface ForeignKey {
      * @return
      */
     Class<?> refClass();
+
+    /**
+     * Whether the column gets an index, which joins and cascading deletes from the referenced table use
+     * @return false to skip the index
+     */
+    boolean index() default true;
 }
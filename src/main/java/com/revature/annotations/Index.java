@@ -0,0 +1,30 @@
+package com.revature.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.TYPE})
+@Repeatable(Indexes.class)
+public @interface Index {
+    /**
+     * Index name
+     * @return index name; empty to derive it from the table and column names
+     */
+    String name() default "";
+
+    /**
+     * Indexed columns in order; required on a class, ignored on a field which indexes its own column
+     * @return column names
+     */
+    String[] columns() default {};
+
+    /**
+     * Whether the indexed values must be unique
+     * @return true for a unique index
+     */
+    boolean unique() default false;
+}
@@ -0,0 +1,16 @@
+package com.revature.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.TYPE})
+public @interface Indexes {
+    /**
+     * Indexes declared with repeated Index annotations
+     * @return indexes
+     */
+    Index[] value();
+}
@@ -0,0 +1,134 @@
+package com.revature.utils;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs asynchronous Dao calls for a ConnectionSource.
+ * At most maxPoolSize calls run at once, so the executor never waits on more connections than the pool can hand out,
+ * and at most queueCapacity more wait to run; with virtual threads the waiting calls park on their own threads. Once both are full, submitting blocks the caller until a call
+ * finishes instead of queueing without bound.
+ */
+final class AsyncExecutor {
+    /**
+     * Logger
+     */
+    private static Logger logger = LogManager.getLogger(AsyncExecutor.class);
+
+    /**
+     * Threads the calls run on
+     */
+    private final ExecutorService executor;
+    /**
+     * Permits for running and queued calls
+     */
+    private final Semaphore permits;
+    /**
+     * Permits for running calls; a virtual thread per call starts every call at once, so this keeps them to the pool size
+     */
+    private final Semaphore running;
+
+    /**
+     * AsyncExecutor constructor
+     * @param threads maximum number of calls running at once
+     * @param queueCapacity maximum number of calls waiting for a thread
+     * @param virtualThreads true to run each call on a virtual thread, if the JVM supports them
+     */
+    AsyncExecutor(int threads, int queueCapacity, boolean virtualThreads) {
+        ExecutorService virtual = virtualThreads ? newVirtualThreadExecutor() : null;
+        this.executor = virtual != null ? virtual : newPlatformThreadExecutor(threads);
+        this.permits = new Semaphore(threads + Math.max(queueCapacity, 0));
+        this.running = new Semaphore(Math.max(threads, 1));
+    }
+
+    /**
+     * Runs a call asynchronously, blocking the caller while the executor is full
+     * @param call call to run
+     * @param <R> result type
+     * @return future completed with the result of the call, or exceptionally if it threw
+     */
+    <R> CompletableFuture<R> submit(Supplier<R> call) {
+        CompletableFuture<R> future = new CompletableFuture<>();
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+            return future;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    running.acquire();
+                    try {
+                        future.complete(call.get());
+                    } finally {
+                        running.release();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    future.completeExceptionally(e);
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Stops accepting calls and waits briefly for running calls to finish
+     */
+    void shutdown() {
+        executor.shutdown();
+        try {
+            if(!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warn("Asynchronous calls were still running at shutdown.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Creates a fixed pool of daemon threads
+     * @param threads number of threads
+     * @return the executor
+     */
+    private static ExecutorService newPlatformThreadExecutor(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(threads, 1), (r) -> {
+            Thread thread = new Thread(r, "ormate-async-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates an executor that starts a virtual thread per call
+     * Looked up reflectively since the library is built for Java 8
+     * @return the executor, or null if the JVM has no virtual threads
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            logger.warn("Virtual threads are not available on this JVM; using platform threads.");
+            return null;
+        }
+    }
+}
@@ -16,6 +16,11 @@ public abstract class BaseClass {
     @Primary(columnName = "id")
     private int id = 0;
 
+    /**
+     * Column values as last loaded from or written to the database, used by dirty tracking
+     */
+    transient Object[] loadedState;
+
     /**
      * BaseClass constructor
      */
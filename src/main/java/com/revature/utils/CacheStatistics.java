@@ -0,0 +1,98 @@
+package com.revature.utils;
+
+/**
+ * Point-in-time counters of an entity cache
+ */
+public class CacheStatistics {
+    /**
+     * Lookups answered from the cache
+     */
+    private final long hits;
+    /**
+     * Lookups that had to go to the database
+     */
+    private final long misses;
+    /**
+     * Rows dropped to stay within the maximum size, or because they expired
+     */
+    private final long evictions;
+    /**
+     * Rows dropped because they were written
+     */
+    private final long invalidations;
+    /**
+     * Rows currently cached
+     */
+    private final long size;
+
+    /**
+     * CacheStatistics constructor
+     * @param hits lookups answered from the cache
+     * @param misses lookups that went to the database
+     * @param evictions rows evicted for size or age
+     * @param invalidations rows dropped because they were written
+     * @param size rows currently cached
+     */
+    CacheStatistics(long hits, long misses, long evictions, long invalidations, long size) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.invalidations = invalidations;
+        this.size = size;
+    }
+
+    /**
+     * Gets the number of lookups answered from the cache
+     * @return hit count
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of lookups that had to go to the database
+     * @return miss count
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Gets the number of rows evicted to stay within the maximum size, or because they expired
+     * @return eviction count
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Gets the number of rows dropped because they were inserted, updated or deleted
+     * @return invalidation count
+     */
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    /**
+     * Gets the number of rows currently cached
+     * @return cache size
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the share of lookups answered from the cache
+     * @return hits divided by lookups, or 0 if there have been none
+     */
+    public double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStatistics{hits=" + hits + ", misses=" + misses + ", evictions=" + evictions +
+                ", invalidations=" + invalidations + ", size=" + size + "}";
+    }
+}
@@ -0,0 +1,306 @@
+package com.revature.utils;
+
+import java.lang.reflect.Field;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Immutable mapping between one persisted field of an entity and its table column
+ */
+final class ColumnDescriptor {
+    /**
+     * Name of the column in the table
+     */
+    private final String columnName;
+    /**
+     * SQL data type of the column
+     */
+    private final String sqlType;
+    /**
+     * Field the column is read from and written to
+     */
+    private final Field field;
+    /**
+     * Class referenced by a foreign key column; null for plain columns
+     */
+    private final Class<?> refClass;
+    /**
+     * Result set accessor used for the field type
+     */
+    private final Accessor accessor;
+
+    /**
+     * ColumnDescriptor constructor
+     * @param columnName name of the column
+     * @param sqlType SQL data type of the column
+     * @param field field backing the column
+     * @param refClass class referenced by a foreign key, or null
+     */
+    ColumnDescriptor(String columnName, String sqlType, Field field, Class<?> refClass) {
+        this.columnName = columnName;
+        this.sqlType = sqlType;
+        this.field = field;
+        this.refClass = refClass;
+        this.accessor = Accessor.of(field.getType());
+        field.setAccessible(true);
+    }
+
+    /**
+     * Gets the column name
+     * @return column name
+     */
+    String getColumnName() {
+        return columnName;
+    }
+
+    /**
+     * Gets the SQL data type
+     * @return SQL data type
+     */
+    String getSqlType() {
+        return sqlType;
+    }
+
+    /**
+     * Gets the backing field
+     * @return backing field
+     */
+    Field getField() {
+        return field;
+    }
+
+    /**
+     * Gets the class referenced by the foreign key
+     * @return referenced class, or null if the column is not a foreign key
+     */
+    Class<?> getRefClass() {
+        return refClass;
+    }
+
+    /**
+     * Checks if the column is a foreign key
+     * @return true if the column references another entity
+     */
+    boolean isForeignKey() {
+        return refClass != null;
+    }
+
+    /**
+     * Checks if the column is a foreign key that is loaded on first access
+     * @return true if the field is a LazyReference
+     */
+    boolean isLazy() {
+        return refClass != null && field.getType() == LazyReference.class;
+    }
+
+    /**
+     * Reads the field value from an entity
+     * @param entity entity to read
+     * @return value of the field
+     */
+    Object get(Object entity) {
+        try {
+            return field.get(entity);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Could not read " + field.getName(), e);
+        }
+    }
+
+    /**
+     * Reads the value that is written to the column; foreign keys are written as the referenced id
+     * @param entity entity to read
+     * @return value bound to the column
+     */
+    Object getBindValue(Object entity) {
+        Object value = get(entity);
+        if(isForeignKey()) {
+            if(value instanceof LazyReference) {
+                return ((LazyReference<?>) value).getId();
+            }
+            return value == null ? null : ((BaseClass) value).getId();
+        }
+        if(value instanceof Character) {
+            return value.toString();
+        }
+        return value;
+    }
+
+    /**
+     * Writes a value read from the column into an entity, converting it to the field type where needed
+     * @param entity entity to write
+     * @param value value read from the column
+     */
+    void set(Object entity, Object value) {
+        if(value == null && field.getType().isPrimitive()) {
+            return;
+        }
+        try {
+            field.set(entity, coerce(value));
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Could not write " + field.getName(), e);
+        }
+    }
+
+    /**
+     * Reads the column from the current row of a result set into an entity
+     * Primitive fields are read with the matching primitive accessor and written without boxing; SQL NULL leaves them unset
+     * @param rs result set positioned on the row
+     * @param position 1-based position of the column
+     * @param entity entity to write
+     * @throws SQLException if the column cannot be read
+     */
+    void read(ResultSet rs, int position, Object entity) throws SQLException {
+        try {
+            switch (accessor) {
+                case INT:
+                    int i = rs.getInt(position);
+                    if(!rs.wasNull()) {
+                        field.setInt(entity, i);
+                    }
+                    break;
+                case LONG:
+                    long l = rs.getLong(position);
+                    if(!rs.wasNull()) {
+                        field.setLong(entity, l);
+                    }
+                    break;
+                case SHORT:
+                    short sh = rs.getShort(position);
+                    if(!rs.wasNull()) {
+                        field.setShort(entity, sh);
+                    }
+                    break;
+                case BYTE:
+                    byte b = rs.getByte(position);
+                    if(!rs.wasNull()) {
+                        field.setByte(entity, b);
+                    }
+                    break;
+                case DOUBLE:
+                    double d = rs.getDouble(position);
+                    if(!rs.wasNull()) {
+                        field.setDouble(entity, d);
+                    }
+                    break;
+                case FLOAT:
+                    float f = rs.getFloat(position);
+                    if(!rs.wasNull()) {
+                        field.setFloat(entity, f);
+                    }
+                    break;
+                case BOOLEAN:
+                    boolean bool = rs.getBoolean(position);
+                    if(!rs.wasNull()) {
+                        field.setBoolean(entity, bool);
+                    }
+                    break;
+                case STRING:
+                    field.set(entity, rs.getString(position));
+                    break;
+                default:
+                    set(entity, rs.getObject(position));
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Could not write " + field.getName(), e);
+        }
+    }
+
+    /**
+     * Parses the string form of a column value back into the type that is bound to the column
+     * @param text value as produced by String.valueOf of a bind value
+     * @return typed bind value
+     */
+    Object parse(String text) {
+        if(isForeignKey()) {
+            return Integer.valueOf(text);
+        }
+        Class<?> type = field.getType();
+        if(type == int.class || type == Integer.class) {
+            return Integer.valueOf(text);
+        } else if(type == long.class || type == Long.class) {
+            return Long.valueOf(text);
+        } else if(type == short.class || type == Short.class) {
+            return Short.valueOf(text);
+        } else if(type == byte.class || type == Byte.class) {
+            return Byte.valueOf(text);
+        } else if(type == double.class || type == Double.class) {
+            return Double.valueOf(text);
+        } else if(type == float.class || type == Float.class) {
+            return Float.valueOf(text);
+        } else if(type == boolean.class || type == Boolean.class) {
+            return Boolean.valueOf(text);
+        }
+        return text;
+    }
+
+    /**
+     * Converts a JDBC value to the type of the backing field
+     * @param value value read from the result set
+     * @return value assignable to the field
+     */
+    private Object coerce(Object value) {
+        return coerce(value, field.getType());
+    }
+
+    /**
+     * Converts a JDBC value to a Java type
+     * @param value value read from the result set
+     * @param type type the value is assigned to
+     * @return value assignable to the type; the value itself when no conversion applies
+     */
+    static Object coerce(Object value, Class<?> type) {
+        if(value instanceof Number) {
+            Number n = (Number) value;
+            if(type == int.class || type == Integer.class) {
+                return n.intValue();
+            } else if(type == long.class || type == Long.class) {
+                return n.longValue();
+            } else if(type == short.class || type == Short.class) {
+                return n.shortValue();
+            } else if(type == byte.class || type == Byte.class) {
+                return n.byteValue();
+            } else if(type == double.class || type == Double.class) {
+                return n.doubleValue();
+            } else if(type == float.class || type == Float.class) {
+                return n.floatValue();
+            }
+        } else if(value instanceof String && (type == char.class || type == Character.class)) {
+            String s = (String) value;
+            return s.isEmpty() ? null : s.charAt(0);
+        }
+        return value;
+    }
+
+    /**
+     * Result set accessors, chosen once per field type
+     */
+    private enum Accessor {
+        INT, LONG, SHORT, BYTE, DOUBLE, FLOAT, BOOLEAN, STRING, OBJECT;
+
+        /**
+         * Chooses the accessor for a field type
+         * @param type type of the field
+         * @return primitive accessor for primitive fields, STRING for String, OBJECT otherwise
+         */
+        static Accessor of(Class<?> type) {
+            if(type == int.class) {
+                return INT;
+            } else if(type == long.class) {
+                return LONG;
+            } else if(type == short.class) {
+                return SHORT;
+            } else if(type == byte.class) {
+                return BYTE;
+            } else if(type == double.class) {
+                return DOUBLE;
+            } else if(type == float.class) {
+                return FLOAT;
+            } else if(type == boolean.class) {
+                return BOOLEAN;
+            } else if(type == String.class) {
+                return STRING;
+            }
+            return OBJECT;
+        }
+    }
+}
@@ -0,0 +1,577 @@
+package com.revature.utils;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded, thread-safe pool of physical database connections.
+ * Connections handed out by the pool are proxies; closing one returns the physical connection to the pool.
+ * Each physical connection keeps its most recently used prepared statements open, so statements prepared again
+ * with the same SQL are reused and the driver can switch them to server-side prepared statements.
+ */
+class ConnectionPool {
+    /**
+     * Logger
+     */
+    private static Logger logger = LogManager.getLogger(ConnectionPool.class);
+
+    /**
+     * Idle connections are revalidated when they have been idle for longer than this many milliseconds
+     */
+    private static final long VALIDATION_BYPASS_WINDOW = 500;
+
+    /**
+     * Database connection credentials
+     */
+    private final String url;
+    private final String username;
+    private final String password;
+
+    /**
+     * Pool configuration
+     */
+    private final int minSize;
+    private final int maxSize;
+    private final long borrowTimeout;
+    private final long idleTimeout;
+    private final long maxLifetime;
+    private final int validationTimeout;
+    private final int statementCacheSize;
+
+    /**
+     * Idle connections, most recently returned first
+     */
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    /**
+     * Limits the number of connections that can be borrowed at once
+     */
+    private final Semaphore permits;
+    /**
+     * Number of physical connections currently open
+     */
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    /**
+     * Evicts idle and expired connections and keeps the pool at its minimum size
+     */
+    private final ScheduledExecutorService housekeeper;
+
+    /**
+     * Set once the pool has been shut down
+     */
+    private volatile boolean shutdown = false;
+
+    /**
+     * ConnectionPool constructor
+     * @param source ConnectionSource holding the credentials and pool configuration
+     */
+    ConnectionPool(ConnectionSource source) {
+        this.url = source.getUrl();
+        this.username = source.getUsername();
+        this.password = source.getPassword();
+        this.maxSize = Math.max(1, source.getMaxPoolSize());
+        this.minSize = Math.min(Math.max(0, source.getMinPoolSize()), maxSize);
+        this.borrowTimeout = source.getBorrowTimeout();
+        this.idleTimeout = source.getIdleTimeout();
+        this.maxLifetime = source.getMaxLifetime();
+        this.validationTimeout = source.getValidationTimeout();
+        this.statementCacheSize = Math.max(0, source.getStatementCacheSize());
+        this.permits = new Semaphore(maxSize, true);
+
+        housekeeper = Executors.newSingleThreadScheduledExecutor((r) -> {
+            Thread thread = new Thread(r, "ormate-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000, Math.min(30000, idleTimeout > 0 ? idleTimeout / 2 : 30000));
+        housekeeper.scheduleWithFixedDelay(this::houseKeep, 0, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection from the pool, opening a new one if none are idle and the pool is not full
+     * @return a pooled connection
+     * @throws SQLException if the pool has been shut down, no connection became available within the borrow timeout, or the wait was interrupted
+     */
+    Connection borrow() throws SQLException {
+        if(shutdown) {
+            throw new SQLException("Could not borrow a connection; the pool has been shut down.");
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(borrowTimeout);
+        try {
+            if(!permits.tryAcquire(borrowTimeout, TimeUnit.MILLISECONDS)) {
+                throw new SQLTimeoutException("Timed out after " + borrowTimeout + "ms waiting for a connection.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection.", e);
+        }
+
+        try {
+            while(System.nanoTime() < deadline) {
+                PooledConnection pooled = idle.pollFirst();
+                if(pooled == null) {
+                    if(totalConnections.incrementAndGet() <= maxSize) {
+                        pooled = open();
+                    } else {
+                        totalConnections.decrementAndGet();
+                        pooled = idle.pollFirst(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                        if(pooled == null) {
+                            continue;
+                        }
+                    }
+                }
+                if(isUsable(pooled)) {
+                    return pooled.newProxy();
+                }
+                discard(pooled);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            permits.release();
+            throw new SQLException("Interrupted while waiting for a connection.", e);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        permits.release();
+        throw new SQLTimeoutException("Timed out after " + borrowTimeout + "ms waiting for a connection.");
+    }
+
+    /**
+     * Hands a connection back to the pool once its proxy has been closed
+     * @param pooled connection being returned
+     */
+    private void release(PooledConnection pooled) {
+        pooled.lastReturned = System.currentTimeMillis();
+        try {
+            if(shutdown || isExpired(pooled) || pooled.physical.isClosed()) {
+                discard(pooled);
+            } else {
+                idle.offerFirst(pooled);
+            }
+        } catch (SQLException e) {
+            discard(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Closes every idle connection and stops the housekeeper; borrowed connections are closed when returned
+     */
+    void shutdown() {
+        shutdown = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while((pooled = idle.pollFirst()) != null) {
+            discard(pooled);
+        }
+    }
+
+    /**
+     * Gets the number of open physical connections
+     * @return open connection count
+     */
+    int getTotalConnections() {
+        return totalConnections.get();
+    }
+
+    /**
+     * Gets the number of idle connections
+     * @return idle connection count
+     */
+    int getIdleConnections() {
+        return idle.size();
+    }
+
+    /**
+     * Gets the maximum number of connections
+     * @return maximum pool size
+     */
+    int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Evicts idle and expired connections and tops the pool back up to its minimum size
+     */
+    private void houseKeep() {
+        long now = System.currentTimeMillis();
+        for(PooledConnection pooled : idle) {
+            boolean idleTooLong = idleTimeout > 0 && now - pooled.lastReturned > idleTimeout
+                    && totalConnections.get() > minSize;
+            if((idleTooLong || isExpired(pooled)) && idle.remove(pooled)) {
+                discard(pooled);
+            }
+        }
+        while(!shutdown && totalConnections.get() < minSize) {
+            if(totalConnections.incrementAndGet() > minSize) {
+                totalConnections.decrementAndGet();
+                break;
+            }
+            PooledConnection pooled;
+            try {
+                pooled = open();
+            } catch (SQLException e) {
+                logger.error("Could not open a database connection.", e);
+                break;
+            }
+            pooled.lastReturned = System.currentTimeMillis();
+            idle.offerLast(pooled);
+        }
+    }
+
+    /**
+     * Opens a new physical connection; the caller must already have counted it in totalConnections
+     * @return the new connection
+     * @throws SQLException if the connection could not be opened
+     */
+    private PooledConnection open() throws SQLException {
+        try {
+            return new PooledConnection(DriverManager.getConnection(url, username, password));
+        } catch (SQLException e) {
+            totalConnections.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Physically closes a connection and removes it from the pool count
+     * @param pooled connection to close
+     */
+    private void discard(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            logger.warn("Could not close a pooled connection.", e);
+        }
+    }
+
+    /**
+     * Checks that a connection is within its lifetime and still alive
+     * @param pooled connection to check
+     * @return true if the connection can be handed out
+     */
+    private boolean isUsable(PooledConnection pooled) {
+        if(isExpired(pooled)) {
+            return false;
+        }
+        if(System.currentTimeMillis() - pooled.lastReturned < VALIDATION_BYPASS_WINDOW) {
+            return true;
+        }
+        try {
+            return pooled.physical.isValid(validationTimeout);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Checks if a connection has outlived the maximum lifetime
+     * @param pooled connection to check
+     * @return true if the connection should be retired
+     */
+    private boolean isExpired(PooledConnection pooled) {
+        return maxLifetime > 0 && System.currentTimeMillis() - pooled.createdAt > maxLifetime;
+    }
+
+    /**
+     * A physical connection along with its pool bookkeeping
+     */
+    private class PooledConnection {
+        private final Connection physical;
+        private final long createdAt = System.currentTimeMillis();
+        private volatile long lastReturned = createdAt;
+        /**
+         * Open prepared statements by SQL and options, least recently used first; only touched by the current borrower
+         */
+        private final LinkedHashMap<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        /**
+         * Creates a proxy for a single borrow; closing the proxy returns the connection to the pool
+         * @return proxied connection
+         */
+        private Connection newProxy() {
+            return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class<?>[] {Connection.class}, new Handler(this));
+        }
+
+        /**
+         * Prepares a statement through the cache, reusing an idle cached statement with the same key
+         * A statement whose cached copy is still open elsewhere in the same borrow is prepared uncached
+         * @param key SQL and options of the statement
+         * @param method prepareStatement overload that was called
+         * @param args its arguments
+         * @return statement whose close() hands it back to the cache
+         * @throws Throwable if the driver cannot prepare the statement
+         */
+        private PreparedStatement prepare(String key, Method method, Object[] args) throws Throwable {
+            CachedStatement cached = statements.get(key);
+            if(cached != null && cached.inUse) {
+                return (PreparedStatement) invokePhysical(method, args);
+            }
+            if(cached == null) {
+                cached = new CachedStatement((PreparedStatement) invokePhysical(method, args));
+                statements.put(key, cached);
+                evictOverflow();
+            }
+            return cached.lease();
+        }
+
+        /**
+         * Calls a method on the physical connection
+         * @param method method to call
+         * @param args its arguments
+         * @return the result
+         * @throws Throwable the exception thrown by the driver
+         */
+        private Object invokePhysical(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        /**
+         * Closes the least recently used statements beyond the cache size; statements in use are closed when handed back
+         */
+        private void evictOverflow() {
+            Iterator<CachedStatement> eldest = statements.values().iterator();
+            while(statements.size() > statementCacheSize && eldest.hasNext()) {
+                CachedStatement cached = eldest.next();
+                eldest.remove();
+                cached.evicted = true;
+                if(!cached.inUse) {
+                    cached.closePhysical();
+                }
+            }
+        }
+
+        /**
+         * Drops a statement that could not be reset from the cache
+         * @param cached statement to drop
+         */
+        private void forget(CachedStatement cached) {
+            statements.values().remove(cached);
+            cached.closePhysical();
+        }
+
+        /**
+         * A prepared statement kept open on the connection between borrows
+         */
+        private class CachedStatement {
+            private final PreparedStatement statement;
+            private boolean inUse = false;
+            private boolean evicted = false;
+            /**
+             * Result sets opened during the current lease, closed when it ends
+             */
+            private final List<ResultSet> results = new ArrayList<>();
+
+            private CachedStatement(PreparedStatement statement) {
+                this.statement = statement;
+            }
+
+            /**
+             * Hands the statement out until the returned proxy is closed
+             * @return proxied statement
+             */
+            private PreparedStatement lease() {
+                inUse = true;
+                return (PreparedStatement) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                        new Class<?>[] {PreparedStatement.class}, new StatementHandler(this));
+            }
+
+            /**
+             * Ends a lease: closes its result sets and clears parameters and batches so the next lease starts clean
+             */
+            private void release() {
+                inUse = false;
+                try {
+                    for(ResultSet rs : results) {
+                        rs.close();
+                    }
+                    results.clear();
+                    statement.clearParameters();
+                    statement.clearBatch();
+                } catch (SQLException e) {
+                    logger.warn("Could not reset a cached statement; it will be closed.", e);
+                    forget(this);
+                    return;
+                }
+                if(evicted) {
+                    closePhysical();
+                }
+            }
+
+            /**
+             * Closes the statement on the database
+             */
+            private void closePhysical() {
+                try {
+                    statement.close();
+                } catch (SQLException e) {
+                    logger.warn("Could not close a cached statement.", e);
+                }
+            }
+        }
+
+        /**
+         * Intercepts close() on a leased statement and remembers the result sets it opens
+         */
+        private class StatementHandler implements InvocationHandler {
+            private final CachedStatement cached;
+            private boolean closed = false;
+
+            private StatementHandler(CachedStatement cached) {
+                this.cached = cached;
+            }
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if(!closed) {
+                            closed = true;
+                            cached.release();
+                        }
+                        return null;
+                    case "isClosed":
+                        return closed || cached.statement.isClosed();
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "Cached" + cached.statement;
+                    default:
+                        if(closed) {
+                            throw new SQLException("Statement has already been closed.");
+                        }
+                        Object result;
+                        try {
+                            result = method.invoke(cached.statement, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                        if(result instanceof ResultSet) {
+                            cached.results.add((ResultSet) result);
+                        }
+                        return result;
+                }
+            }
+        }
+    }
+
+    /**
+     * Intercepts close() and isClosed() on borrowed connections and forwards everything else
+     */
+    private class Handler implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean closed = false;
+
+        private Handler(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public synchronized Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if(!closed) {
+                        closed = true;
+                        reset();
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + pooled.physical;
+                default:
+                    if(closed) {
+                        throw new SQLException("Connection has already been returned to the pool.");
+                    }
+                    String key = statementKey(method, args);
+                    if(key != null) {
+                        return pooled.prepare(key, method, args);
+                    }
+                    try {
+                        return method.invoke(pooled.physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+
+        /**
+         * Builds the cache key of a prepareStatement call
+         * @param method method that was called
+         * @param args its arguments
+         * @return SQL and options of the statement, or null if the call is not cached
+         */
+        private String statementKey(Method method, Object[] args) {
+            if(statementCacheSize == 0 || !"prepareStatement".equals(method.getName())) {
+                return null;
+            }
+            if(args.length == 1) {
+                return (String) args[0];
+            }
+            if(args.length == 2 && args[1] instanceof String[]) {
+                return args[0] + "|keys=" + String.join(",", (String[]) args[1]);
+            }
+            if(args.length == 3) {
+                return args[0] + "|type=" + args[1] + "," + args[2];
+            }
+            return null;
+        }
+
+        /**
+         * Rolls back any open transaction and restores auto-commit before the connection is reused
+         */
+        private void reset() {
+            try {
+                if(!pooled.physical.isClosed() && !pooled.physical.getAutoCommit()) {
+                    pooled.physical.rollback();
+                    pooled.physical.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                logger.warn("Could not reset a pooled connection; it will be discarded.", e);
+                try {
+                    pooled.physical.close();
+                } catch (SQLException ignored) {
+                }
+            }
+        }
+    }
+}
@@ -4,10 +4,12 @@ import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
-public class ConnectionSource {
+public class ConnectionSource implements AutoCloseable {
     private static Logger logger = LogManager.getLogger(ConnectionSource.class);
     /**
      * Database connection credentials
@@ -17,9 +19,34 @@ public class ConnectionSource {
     private String PASSWORD;
 
     /**
-     * Connection object
+     * Pool configuration; must be set before the first call to connect()
      */
-    private Connection connection;
+    private int minPoolSize = 0;
+    private int maxPoolSize = 10;
+    private long borrowTimeout = 30000;
+    private long idleTimeout = 600000;
+    private long maxLifetime = 1800000;
+    private int validationTimeout = 5;
+    private int statementCacheSize = 64;
+
+    /**
+     * Asynchronous call configuration; must be set before the first asynchronous Dao call
+     */
+    private int asyncQueueCapacity = 1000;
+    private boolean virtualThreads = false;
+
+    /**
+     * Connection pool, created on the first call to connect()
+     */
+    private volatile ConnectionPool pool;
+    /**
+     * Executor for asynchronous Dao calls, created on the first asynchronous call
+     */
+    private volatile AsyncExecutor executor;
+    /**
+     * Log of Dao calls slower than the slow query threshold
+     */
+    private final SlowQueryLog slowQueryLog = new SlowQueryLog(this);
 
     /**
      * Constructor
@@ -31,17 +58,387 @@ public class ConnectionSource {
     }
 
     /**
-     * Gets the connection to the database
-     * @return
+     * Constructor
+     * @param url jdbc url of the database
+     * @param username database username
+     * @param password database password
+     */
+    public ConnectionSource(String url, String username, String password) {
+        this.URL = url;
+        this.USERNAME = username;
+        this.PASSWORD = password;
+    }
+
+    /**
+     * Borrows a connection from the pool. Closing the connection hands it back to the pool.
+     * @return a pooled connection
+     * @throws SQLException if no connection could be obtained within the borrow timeout, or the pool has been closed
+     */
+    public Connection connect() throws SQLException {
+        return getPool().borrow();
+    }
+
+    /**
+     * Begins a transaction on a connection from this source's pool
+     * @return the new transaction; pass it to Dao methods in place of this source
+     */
+    public Transaction beginTransaction() {
+        return new Transaction(this);
+    }
+
+    /**
+     * Waits briefly for running asynchronous calls, then closes all idle pooled connections; connections still in use are closed when they are returned
+     */
+    @Override
+    public void close() {
+        ConnectionPool p;
+        AsyncExecutor e;
+        synchronized (this) {
+            p = pool;
+            pool = null;
+            e = executor;
+            executor = null;
+        }
+        if(e != null) {
+            e.shutdown();
+        }
+        slowQueryLog.shutdown();
+        if(p != null) {
+            p.shutdown();
+        }
+    }
+
+    /**
+     * Gets the connection pool, creating it on first use
+     * @return the connection pool
+     */
+    ConnectionPool getPool() {
+        ConnectionPool p = pool;
+        if(p == null) {
+            synchronized (this) {
+                p = pool;
+                if(p == null) {
+                    try {
+                        Class.forName("org.postgresql.Driver");
+                    } catch (ClassNotFoundException e) {
+                        logger.error("Could not load the postgres driver.", e);
+                    }
+                    p = new ConnectionPool(this);
+                    pool = p;
+                }
+            }
+        }
+        return p;
+    }
+
+    /**
+     * Runs a Dao call on the asynchronous executor, creating it on first use
+     * The executor runs at most maxPoolSize calls at once; the caller blocks while the queue is full
+     * @param call call to run
+     * @param <R> result type
+     * @return future completed with the result of the call
+     */
+    <R> CompletableFuture<R> supplyAsync(Supplier<R> call) {
+        AsyncExecutor e = executor;
+        if(e == null) {
+            synchronized (this) {
+                e = executor;
+                if(e == null) {
+                    e = new AsyncExecutor(maxPoolSize, asyncQueueCapacity, virtualThreads);
+                    executor = e;
+                }
+            }
+        }
+        return e.submit(call);
+    }
+
+    /**
+     * Gets the log that slow Dao calls through this source are recorded in
+     * @return slow query log
+     */
+    SlowQueryLog getSlowQueryLog() {
+        return slowQueryLog;
+    }
+
+    /**
+     * Gets the identity map shared by reads through this source
+     * @return the identity map, or null when each read should use its own
      */
-    public Connection connect() {
-        try {
-            Class.forName("org.postgresql.Driver");
-            connection = DriverManager.getConnection(URL, USERNAME, PASSWORD);
-        } catch (SQLException | ClassNotFoundException throwables) {
-            throwables.printStackTrace();
+    LoadContext getLoadContext() {
+        return null;
+    }
+
+    /**
+     * Gets the source that lazy references read through this source load from when they are touched
+     * @return this source
+     */
+    ConnectionSource getLazyLoadSource() {
+        return this;
+    }
+
+    /**
+     * Records an object that was written through this source in its identity map, if it has one
+     * @param clazz class of the object
+     * @param id primary key
+     * @param object the object
+     */
+    void registerLoaded(Class<?> clazz, int id, Object object) {
+        LoadContext context = getLoadContext();
+        if(context != null) {
+            context.put(clazz, id, object);
+        }
+    }
+
+    /**
+     * Removes a deleted object from the identity map of this source, if it has one
+     * @param clazz class of the object
+     * @param id primary key
+     */
+    void forgetLoaded(Class<?> clazz, int id) {
+        LoadContext context = getLoadContext();
+        if(context != null) {
+            context.remove(clazz, id);
         }
+    }
+
+    /**
+     * Checks if connections from this source belong to a caller-managed transaction, in which case Daos must not commit or roll back
+     * @return true for a Transaction
+     */
+    boolean isTransactional() {
+        return false;
+    }
+
+    /**
+     * Gets the queue that writes are deferred to
+     * @return the write queue, or null if writes run immediately
+     */
+    WriteQueue getWriteQueue() {
+        return null;
+    }
+
+    /**
+     * Runs a cache invalidation again once the surrounding transaction completes; outside a transaction there is nothing to repeat
+     * @param invalidation invalidation to repeat
+     */
+    void afterCompletion(Runnable invalidation) {
+    }
+
+    /**
+     * Runs an action once the work done through this source is committed; outside a transaction that is immediately
+     * @param action action to run
+     */
+    void afterCommit(Runnable action) {
+        action.run();
+    }
+
+    /**
+     * Gets the jdbc url
+     * @return jdbc url
+     */
+    public String getUrl() {
+        return URL;
+    }
+
+    /**
+     * Gets the database username
+     * @return database username
+     */
+    public String getUsername() {
+        return USERNAME;
+    }
+
+    /**
+     * Gets the database password
+     * @return database password
+     */
+    String getPassword() {
+        return PASSWORD;
+    }
+
+    /**
+     * Gets the number of connections the pool keeps open while idle
+     * @return minimum pool size
+     */
+    public int getMinPoolSize() {
+        return minPoolSize;
+    }
+
+    /**
+     * Sets the number of connections the pool keeps open while idle
+     * @param minPoolSize minimum pool size
+     */
+    public void setMinPoolSize(int minPoolSize) {
+        this.minPoolSize = minPoolSize;
+    }
+
+    /**
+     * Gets the maximum number of open connections
+     * @return maximum pool size
+     */
+    public int getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+    /**
+     * Sets the maximum number of open connections
+     * @param maxPoolSize maximum pool size
+     */
+    public void setMaxPoolSize(int maxPoolSize) {
+        this.maxPoolSize = maxPoolSize;
+    }
+
+    /**
+     * Gets how long connect() waits for a free connection
+     * @return borrow timeout in milliseconds
+     */
+    public long getBorrowTimeout() {
+        return borrowTimeout;
+    }
+
+    /**
+     * Sets how long connect() waits for a free connection
+     * @param borrowTimeout borrow timeout in milliseconds
+     */
+    public void setBorrowTimeout(long borrowTimeout) {
+        this.borrowTimeout = borrowTimeout;
+    }
+
+    /**
+     * Gets how long a connection may sit idle before it is closed
+     * @return idle timeout in milliseconds; 0 disables idle eviction
+     */
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * Sets how long a connection may sit idle before it is closed
+     * @param idleTimeout idle timeout in milliseconds; 0 disables idle eviction
+     */
+    public void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Gets the maximum lifetime of a connection
+     * @return max lifetime in milliseconds; 0 means unlimited
+     */
+    public long getMaxLifetime() {
+        return maxLifetime;
+    }
+
+    /**
+     * Sets the maximum lifetime of a connection
+     * @param maxLifetime max lifetime in milliseconds; 0 means unlimited
+     */
+    public void setMaxLifetime(long maxLifetime) {
+        this.maxLifetime = maxLifetime;
+    }
+
+    /**
+     * Gets the timeout used when validating an idle connection before it is handed out
+     * @return validation timeout in seconds
+     */
+    public int getValidationTimeout() {
+        return validationTimeout;
+    }
+
+    /**
+     * Sets the timeout used when validating an idle connection before it is handed out
+     * @param validationTimeout validation timeout in seconds
+     */
+    public void setValidationTimeout(int validationTimeout) {
+        this.validationTimeout = validationTimeout;
+    }
+
+    /**
+     * Gets the number of prepared statements kept open on each pooled connection
+     * @return statement cache size; 0 when statements are not cached
+     */
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    /**
+     * Sets the number of prepared statements kept open on each pooled connection; least recently used statements are closed first
+     * @param statementCacheSize statement cache size; 0 disables the cache
+     */
+    public void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    /**
+     * Gets the duration above which Dao calls are logged as slow queries
+     * @return threshold in milliseconds; 0 when slow queries are not logged
+     */
+    public long getSlowQueryThreshold() {
+        return getSlowQueryLog().getThresholdMillis();
+    }
+
+    /**
+     * Sets the duration above which Dao calls are logged as slow queries, with their SQL, parameter count, rows and timings
+     * @param slowQueryThreshold threshold in milliseconds; 0 turns the slow query log off
+     */
+    public void setSlowQueryThreshold(long slowQueryThreshold) {
+        getSlowQueryLog().setThresholdMillis(slowQueryThreshold);
+    }
+
+    /**
+     * Gets the share of slow SELECT statements whose plan is captured
+     * @return sample rate between 0 and 1
+     */
+    public double getExplainSampleRate() {
+        return getSlowQueryLog().getExplainSampleRate();
+    }
 
-        return connection;
+    /**
+     * Sets the share of slow SELECT statements that are run again with EXPLAIN (ANALYZE, BUFFERS) on a background thread
+     * The plan is logged and attached to the slow query
+     * @param explainSampleRate sample rate between 0 and 1; 0 captures no plans
+     */
+    public void setExplainSampleRate(double explainSampleRate) {
+        getSlowQueryLog().setExplainSampleRate(explainSampleRate);
+    }
+
+    /**
+     * Gets the most recent slow queries, up to 100
+     * @return slow queries, oldest first
+     */
+    public List<SlowQuery> getSlowQueries() {
+        return getSlowQueryLog().getRecent();
+    }
+
+    /**
+     * Gets the number of asynchronous calls that may wait for a thread before callers block
+     * @return asynchronous queue capacity
+     */
+    public int getAsyncQueueCapacity() {
+        return asyncQueueCapacity;
+    }
+
+    /**
+     * Sets the number of asynchronous calls that may wait for a thread before callers block
+     * @param asyncQueueCapacity asynchronous queue capacity
+     */
+    public void setAsyncQueueCapacity(int asyncQueueCapacity) {
+        this.asyncQueueCapacity = asyncQueueCapacity;
+    }
+
+    /**
+     * Checks if asynchronous calls run on virtual threads
+     * @return true if virtual threads were requested
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Runs asynchronous calls on virtual threads instead of a fixed thread pool; falls back to platform threads on JVMs without them
+     * The number of calls running at once is still limited to the maximum pool size
+     * @param virtualThreads true to use virtual threads
+     */
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
     }
 }
@@ -0,0 +1,248 @@
+package com.revature.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A filter condition on the columns of an entity, rendered to a parameterized SQL condition.
+ * Conditions name columns by their Column or ForeignKey column name, or "id" for the primary key.
+ */
+public final class Criteria {
+    /**
+     * Comparison operator, or AND / OR for groups
+     */
+    private final String operator;
+    /**
+     * Column compared by this condition; null for groups
+     */
+    private final String columnName;
+    /**
+     * Value compared against; a Collection for IN
+     */
+    private final Object value;
+    /**
+     * Conditions joined by a group
+     */
+    private final List<Criteria> children;
+
+    /**
+     * Criteria constructor
+     * @param operator comparison operator or AND / OR
+     * @param columnName column compared, or null for groups
+     * @param value value compared against
+     * @param children conditions joined by a group
+     */
+    private Criteria(String operator, String columnName, Object value, List<Criteria> children) {
+        this.operator = operator;
+        this.columnName = columnName;
+        this.value = value;
+        this.children = children;
+    }
+
+    /**
+     * column = value; a null value matches rows where the column is null
+     * @param columnName column name
+     * @param value value to match; entities match on their id
+     * @return the condition
+     */
+    public static Criteria eq(String columnName, Object value) {
+        return value == null ? isNull(columnName) : new Criteria("=", columnName, value, null);
+    }
+
+    /**
+     * column &lt;&gt; value
+     * @param columnName column name
+     * @param value value to exclude
+     * @return the condition
+     */
+    public static Criteria ne(String columnName, Object value) {
+        return value == null ? isNotNull(columnName) : new Criteria("<>", columnName, value, null);
+    }
+
+    /**
+     * column &lt; value
+     * @param columnName column name
+     * @param value upper bound, exclusive
+     * @return the condition
+     */
+    public static Criteria lt(String columnName, Object value) {
+        return new Criteria("<", columnName, value, null);
+    }
+
+    /**
+     * column &lt;= value
+     * @param columnName column name
+     * @param value upper bound, inclusive
+     * @return the condition
+     */
+    public static Criteria le(String columnName, Object value) {
+        return new Criteria("<=", columnName, value, null);
+    }
+
+    /**
+     * column &gt; value
+     * @param columnName column name
+     * @param value lower bound, exclusive
+     * @return the condition
+     */
+    public static Criteria gt(String columnName, Object value) {
+        return new Criteria(">", columnName, value, null);
+    }
+
+    /**
+     * column &gt;= value
+     * @param columnName column name
+     * @param value lower bound, inclusive
+     * @return the condition
+     */
+    public static Criteria ge(String columnName, Object value) {
+        return new Criteria(">=", columnName, value, null);
+    }
+
+    /**
+     * column matches any of the values; bound as a single array parameter so the statement shape does not depend on the number of values
+     * @param columnName column name
+     * @param values values to match
+     * @return the condition
+     */
+    public static Criteria in(String columnName, Collection<?> values) {
+        return new Criteria("IN", columnName, new ArrayList<>(values), null);
+    }
+
+    /**
+     * column LIKE pattern
+     * @param columnName column name
+     * @param pattern LIKE pattern using % and _
+     * @return the condition
+     */
+    public static Criteria like(String columnName, String pattern) {
+        return new Criteria("LIKE", columnName, pattern, null);
+    }
+
+    /**
+     * column IS NULL
+     * @param columnName column name
+     * @return the condition
+     */
+    public static Criteria isNull(String columnName) {
+        return new Criteria("IS NULL", columnName, null, null);
+    }
+
+    /**
+     * column IS NOT NULL
+     * @param columnName column name
+     * @return the condition
+     */
+    public static Criteria isNotNull(String columnName) {
+        return new Criteria("IS NOT NULL", columnName, null, null);
+    }
+
+    /**
+     * All of the conditions must match
+     * @param criteria conditions to join
+     * @return the group
+     */
+    public static Criteria and(Criteria... criteria) {
+        return new Criteria("AND", null, null, Arrays.asList(criteria));
+    }
+
+    /**
+     * At least one of the conditions must match
+     * @param criteria conditions to join
+     * @return the group
+     */
+    public static Criteria or(Criteria... criteria) {
+        return new Criteria("OR", null, null, Arrays.asList(criteria));
+    }
+
+    /**
+     * Appends this condition to a WHERE clause and collects its parameters
+     * @param descriptor entity the condition applies to; column names are checked against it
+     * @param sql receives the condition
+     * @param params receives the parameter values in order
+     */
+    void render(EntityDescriptor<?> descriptor, StringBuilder sql, List<Object> params) {
+        if(children != null) {
+            if(children.isEmpty()) {
+                sql.append("AND".equals(operator) ? "TRUE" : "FALSE");
+                return;
+            }
+            sql.append("(");
+            for(int i = 0; i < children.size(); i++) {
+                if(i > 0) {
+                    sql.append(" ").append(operator).append(" ");
+                }
+                children.get(i).render(descriptor, sql, params);
+            }
+            sql.append(")");
+            return;
+        }
+
+        ColumnDescriptor column = null;
+        if(!"id".equals(columnName)) {
+            column = descriptor.getColumn(columnName);
+            if(column == null) {
+                throw new IllegalArgumentException(descriptor.getTableName() + " has no column " + columnName);
+            }
+        }
+        sql.append(columnName);
+        if(value == null && operator.startsWith("IS")) {
+            sql.append(" ").append(operator);
+        } else if("IN".equals(operator)) {
+            List<Object> values = new ArrayList<>();
+            for(Object v : (Collection<?>) value) {
+                values.add(toParameter(v));
+            }
+            String type = column == null ? "int" : column.getSqlType();
+            sql.append(" = ANY(?)");
+            params.add(new ArrayParameter(type, values.toArray()));
+        } else {
+            sql.append(" ").append(operator).append(" ?");
+            params.add(toParameter(value));
+        }
+    }
+
+    /**
+     * Converts a value to the form bound to its column; entities are bound by id
+     * @param v value to convert
+     * @return bind value
+     */
+    private static Object toParameter(Object v) {
+        if(v instanceof BaseClass) {
+            return ((BaseClass) v).getId();
+        }
+        if(v instanceof LazyReference) {
+            return ((LazyReference<?>) v).getId();
+        }
+        if(v instanceof Character) {
+            return v.toString();
+        }
+        return v;
+    }
+
+    /**
+     * A parameter that is bound as a SQL array
+     */
+    static final class ArrayParameter {
+        /**
+         * SQL type of the array elements
+         */
+        final String elementType;
+        /**
+         * Array elements
+         */
+        final Object[] elements;
+
+        /**
+         * ArrayParameter constructor
+         * @param elementType SQL type of the array elements
+         * @param elements array elements
+         */
+        ArrayParameter(String elementType, Object[] elements) {
+            this.elementType = elementType;
+            this.elements = elements;
+        }
+    }
+}
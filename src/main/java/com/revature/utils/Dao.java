@@ -1,23 +1,39 @@
 package com.revature.utils;
 
-import com.revature.annotations.Column;
-import com.revature.annotations.Entity;
+import com.revature.annotations.Cacheable;
 import com.revature.annotations.ForeignKey;
-import com.revature.annotations.Primary;
+import com.revature.annotations.Index;
 import org.apache.log4j.Logger;
 
-import java.lang.annotation.Annotation;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class Dao<T> {
 
@@ -27,10 +43,31 @@ public class Dao<T> {
      */
     private static Logger logger = Logger.getLogger(Dao.class);
 
+    /**
+     * Columns returned by inserts
+     */
+    private static final String[] GENERATED_KEYS = {"id"};
+    /**
+     * Conflict key of upserts that match rows by primary key
+     */
+    private static final List<String> ID_KEY = Collections.singletonList("id");
+    /**
+     * Maximum number of ids bound to one WHERE id = ANY(?) statement; larger id sets are sent in chunks
+     */
+    private static final int MAX_IDS_PER_STATEMENT = 5000;
+    /**
+     * Number of statement shapes whose row decoders are kept; rows of further shapes are decoded without caching
+     */
+    private static final int MAX_ROW_DECODERS = 256;
+
     /**
      * Holds the Class Type of the dao object
      */
-    private Class<?> daoClass;
+    private Class<T> daoClass;
+    /**
+     * Holds the mapping metadata of the class the dao is holding
+     */
+    private final EntityDescriptor<T> descriptor;
     /**
      * Holds the table name
      */
@@ -51,473 +88,1919 @@ public class Dao<T> {
      * Holds the constraints that are created for the table
      */
     private List<String> constraints = new ArrayList<>();
-
+    /**
+     * Holds the select list naming the id and every column, used instead of SELECT *
+     */
+    private final String selectColumns;
+    /**
+     * Statements built once from the table and column names; every value is sent as a parameter
+     */
+    private final String insertSql;
+    private final String selectAllSql;
+    private final String selectLastSql;
+    private final String selectByIdsSql;
+    private final String selectOffsetPageSql;
+    private final String deleteByIdSql;
+    private final String deleteByIdsSql;
+    /**
+     * Keyset page statements by ordering column: the first page, then the pages after a token
+     */
+    private final Map<String, String[]> pageSql = new HashMap<>();
+    /**
+     * Holds the statement that creates the table
+     */
+    private final String createTableSql;
+    /**
+     * Holds the statements that create the indexes of the table
+     */
+    private final List<String> createIndexSql;
+    /**
+     * Set once the table is known to exist, so inserts no longer need to create it
+     */
+    private volatile boolean tableEnsured = false;
+    /**
+     * Number of rows sent per batch by insertAll
+     */
+    private int batchSize = 500;
+    /**
+     * Number of rows fetched per round-trip by stream and forEach
+     */
+    private int fetchSize = 1000;
+    /**
+     * Whether loaded objects remember their column values so updates only write changed columns
+     */
+    private boolean dirtyTracking = false;
+    /**
+     * Row decoders by the SQL of the statement whose rows they read
+     */
+    private final Map<String, RowDecoder> rowDecoders = new ConcurrentHashMap<>();
+    /**
+     * UPDATE statements by the set of columns they write
+     */
+    private final Map<BitSet, String> updateSql = new ConcurrentHashMap<>();
+    /**
+     * INSERT ... ON CONFLICT statements by the columns whose unique index decides a conflict
+     */
+    private final Map<List<String>, String> upsertSql = new ConcurrentHashMap<>();
+    /**
+     * Shared cache of rows loaded by id; null unless the entity is Cacheable
+     */
+    private final EntityCache cache;
+    /**
+     * Call counts and latencies of each operation
+     */
+    private final DaoMetrics metrics;
 
     /**
      * Dao constructor
-     * Gets table name from Entity Annotation on the model
-     * Dao class is taken from teh class that is passed into the constructor
-     * Iterates through each field to check for annotations and parses accordingly
+     * Builds the entity descriptor once from the Entity, Column and ForeignKey annotations on the model
+     * Dao class is taken from the class that is passed into the constructor
      * ArrayLists of columns and column types are filled and each column index in the columnName list matches the index of its type in the columnType List
      * @param clazz Class Type of the Dao
      */
-    public Dao(Class<?> clazz) {
-        tableName = getTableName(clazz);
+    public Dao(Class<T> clazz) {
+        descriptor = new EntityDescriptor<>(clazz);
+        tableName = descriptor.getTableName();
         daoClass = clazz;
-        Field[] fields = clazz.getDeclaredFields();
-        for(Field field: fields) {
-            fieldNames.add(field.getName());
-            Annotation annotation = getFieldAnnotation(field);
-            if(annotation instanceof Primary) {
-                Primary primary = (Primary) annotation;
-                String colName = primary.columnName();
-                columnNames.add(colName);
-                columnTypes.add(0, "SERIAL PRIMARY KEY");
-            } else if (annotation instanceof Column) {
-                Column c = (Column) annotation;
-                String colName = c.columnName();
-                columnNames.add(colName);
-                String type = getSqlType(field);
-                columnTypes.add(type);
-            } else if (annotation instanceof ForeignKey) {
-                ForeignKey fk = (ForeignKey) annotation;
-                String colName = fk.colName();
-                columnNames.add(colName);
-                columnTypes.add("int");
-                constraints.add("FOREIGN KEY (" + colName + ") REFERENCES " +
-                        getTableName(fk.refClass()) + "(id)" +
+        for(ColumnDescriptor column : descriptor.getColumns()) {
+            fieldNames.add(column.getField().getName());
+            columnNames.add(column.getColumnName());
+            columnTypes.add(column.getSqlType());
+            if(column.isForeignKey()) {
+                constraints.add("FOREIGN KEY (" + column.getColumnName() + ") REFERENCES " +
+                        EntityDescriptor.tableNameOf(column.getRefClass()) + "(id)" +
                         " ON DELETE CASCADE ON UPDATE CASCADE");
             }
-
         }
+        createTableSql = buildCreateTableSql();
+        selectColumns = "id, " + String.join(", ", columnNames);
+        String select = "SELECT " + selectColumns + " FROM " + tableName;
+        insertSql = buildInsertSql();
+        selectAllSql = select;
+        selectLastSql = select + " ORDER BY id DESC LIMIT 1";
+        selectByIdsSql = select + " WHERE id = ANY(?)";
+        selectOffsetPageSql = select + " ORDER BY id LIMIT ? OFFSET ?";
+        deleteByIdSql = "DELETE FROM " + tableName + " WHERE id = ?";
+        deleteByIdsSql = "DELETE FROM " + tableName + " WHERE id = ANY(?)";
+        pageSql.put("id", new String[] {select + " ORDER BY id LIMIT ?", select + " WHERE id > ? ORDER BY id LIMIT ?"});
+        for(String columnName : columnNames) {
+            String order = " ORDER BY " + columnName + ", id LIMIT ?";
+            pageSql.put(columnName, new String[] {select + " WHERE " + columnName + " IS NOT NULL" + order,
+                    select + " WHERE (" + columnName + ", id) > (?, ?)" + order});
+        }
+        BitSet allColumns = new BitSet();
+        allColumns.set(0, columnNames.size());
+        getUpdateSql(allColumns);
+        getUpsertSql(ID_KEY);
+        createIndexSql = buildCreateIndexSql();
+        Cacheable cacheable = clazz.getAnnotation(Cacheable.class);
+        cache = cacheable == null ? null : new EntityCache(cacheable.maxSize(), cacheable.ttlSeconds());
+        metrics = new DaoMetrics(tableName);
     }
 
     /**
-     * Creates a table based on the model passed into the dao instance
+     * Creates a table and its indexes based on the model passed into the dao instance
      * @param connectionSource instance of the database connection
      * @return returns true if a table was created; false otherwise
      */
     private boolean createTable(ConnectionSource connectionSource) {
+        try (Connection conn = connectionSource.connect(); Statement statement = conn.createStatement()) {
+            statement.execute(createTableSql);
+            for(String sql : createIndexSql) {
+                statement.execute(sql);
+            }
+            connectionSource.afterCommit(this::markTableEnsured);
+            return true;
+        } catch (SQLException e) {
+            logger.error("Could not create table.", e);
+        }
+        return false;
+    }
+
+    /**
+     * Builds the CREATE TABLE statement for the model passed into the dao instance
+     * @return CREATE TABLE IF NOT EXISTS statement
+     */
+    private String buildCreateTableSql() {
         StringBuilder tableStatements = new StringBuilder();
-        tableStatements.append("id SERIAL PRIMARY KEY, ");
+        tableStatements.append("id SERIAL PRIMARY KEY");
         for(int i = 0; i < columnNames.size(); i++) {
-            if(i < columnNames.size() - 1) {
-                tableStatements.append(columnNames.get(i)).append(" ").append(columnTypes.get(i)).append(", ");
-            } else {
-                tableStatements.append(columnNames.get(i)).append(" ").append(columnTypes.get(i));
-            }
+            tableStatements.append(", ").append(columnNames.get(i)).append(" ").append(columnTypes.get(i));
         }
         if(constraints.size() > 0) {
             tableStatements.append(", ").append(String.join(", ", constraints));
         }
-        String sql = "CREATE TABLE IF NOT EXISTS " + tableName + " (" + tableStatements + ")";
-        try (Connection conn = connectionSource.connect(); PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.execute();
-            return true;
-        } catch (SQLException e) {
-            logger.error("Could not create table.", e);
+        return "CREATE TABLE IF NOT EXISTS " + tableName + " (" + tableStatements + ")";
+    }
+
+    /**
+     * Builds the CREATE INDEX statements for the Index annotations on the model and its fields
+     * Foreign key columns are indexed too unless their ForeignKey opts out or a declared index already starts with them
+     * @return CREATE INDEX IF NOT EXISTS statements
+     */
+    private List<String> buildCreateIndexSql() {
+        List<String> statements = new ArrayList<>();
+        Set<String> leadingColumns = new HashSet<>();
+        for(Index index : daoClass.getAnnotationsByType(Index.class)) {
+            if(index.columns().length == 0) {
+                throw new IllegalArgumentException("Index on " + daoClass.getName() + " needs at least one column");
+            }
+            statements.add(buildCreateIndexSql(index.name(), index.unique(), Arrays.asList(index.columns())));
+            leadingColumns.add(index.columns()[0]);
         }
-        return false;
+        for(ColumnDescriptor column : descriptor.getColumns()) {
+            for(Index index : column.getField().getAnnotationsByType(Index.class)) {
+                statements.add(buildCreateIndexSql(index.name(), index.unique(), Collections.singletonList(column.getColumnName())));
+                leadingColumns.add(column.getColumnName());
+            }
+        }
+        for(ColumnDescriptor column : descriptor.getForeignKeys()) {
+            if(column.getField().getAnnotation(ForeignKey.class).index() && !leadingColumns.contains(column.getColumnName())) {
+                statements.add(buildCreateIndexSql("", false, Collections.singletonList(column.getColumnName())));
+            }
+        }
+        return Collections.unmodifiableList(statements);
+    }
+
+    /**
+     * Builds one CREATE INDEX statement
+     * @param name index name; empty to derive it from the table and column names
+     * @param unique whether the indexed values must be unique
+     * @param columns indexed columns in order
+     * @return CREATE INDEX IF NOT EXISTS statement
+     */
+    private String buildCreateIndexSql(String name, boolean unique, List<String> columns) {
+        for(String column : columns) {
+            if(!column.equals("id") && descriptor.getColumn(column) == null) {
+                throw new IllegalArgumentException("Index on " + tableName + " names unknown column " + column);
+            }
+        }
+        String indexName = name.isEmpty() ? tableName + "_" + String.join("_", columns) + (unique ? "_key" : "_idx") : name;
+        return "CREATE " + (unique ? "UNIQUE " : "") + "INDEX IF NOT EXISTS " + indexName +
+                " ON " + tableName + " (" + String.join(", ", columns) + ")";
     }
 
     /**
      * Inserts a new row into the table
+     * The generated id is returned by the INSERT itself and written onto the object
+     * In a write-behind Transaction the insert is queued and the id is assigned when the transaction flushes
      * @param connectionSource instance of the database connection
      * @param object Instance of the class the dao instance is holding
      * @return returns the object that has been inserted into the DB
      */
     public T insert(ConnectionSource connectionSource, T object) {
-        createTable(connectionSource);
-        Object fieldValue = null;
-        List<String> psConditions = new ArrayList<>();
-        for (int i = 0; i < columnNames.size(); i++) {
-            psConditions.add("?");
+        WriteQueue queue = connectionSource.getWriteQueue();
+        if(queue != null) {
+            queue.insert(this, object);
+            return object;
         }
-        String sql = "INSERT INTO " + tableName + "(" + String.join(", ", columnNames) + ") VALUES (" +
-                String.join(", ", psConditions) + ")";
-        try (Connection conn = connectionSource.connect(); PreparedStatement ps = conn.prepareStatement(sql)) {
-            int colIndex = 0;
-            int conditionIndex = 1;
-            for (String condition : psConditions) {
-                Class<?> clazz = object.getClass();
-                Field field = clazz.getDeclaredField(fieldNames.get(colIndex));
-                field.setAccessible(true);
-                if (getFieldAnnotation(field).annotationType().getSimpleName().equals("ForeignKey")) {
-                    Object o = field.get(object);
-                    Class<?> cl = o.getClass().getSuperclass();
-                    Field f = cl.getDeclaredField("id");
-                    f.setAccessible(true);
-                    fieldValue = f.get(o);
-                } else {
-                    fieldValue = field.get(object);
+        if(!tableEnsured) {
+            createTable(connectionSource);
+        }
+        String sql = insertSql;
+        try (OperationTimer timer = metrics.start(Operation.INSERT, connectionSource);
+             Connection conn = timer.connected(connectionSource.connect()); PreparedStatement ps = conn.prepareStatement(sql, GENERATED_KEYS)) {
+            bindColumns(ps, object, 1);
+            timer.statement(sql, columnNames.size());
+            timer.wrote(ps.executeUpdate());
+            timer.executed();
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                if(keys.next()) {
+                    EntityDescriptor.setId(object, keys.getInt(1));
                 }
-                ps.setObject(conditionIndex, fieldValue);
-                colIndex++;
-                conditionIndex++;
             }
-            ps.execute();
-            object = getLastRecordOf(connectionSource);
+            inserted(connectionSource, object);
             return object;
 
-        } catch (SQLException | NoSuchFieldException | IllegalAccessException e) {
+        } catch (SQLException e) {
+            metrics.failed(Operation.INSERT);
             logger.error(e.getMessage(), e);
         }
-        return (T) object;
+        return object;
     }
 
     /**
-     * Selects an object by its ID
+     * Inserts many rows over one connection and one prepared statement using JDBC batches
+     * Each chunk of batchSize rows is sent as one batch and committed as one transaction, and the generated ids are written onto the objects
+     * If a chunk fails it is rolled back and no further chunks are sent
+     * Inside a Transaction the chunks are not committed separately; they commit with the transaction
      * @param connectionSource instance of the database connection
-     * @param id id number of the object being retrieved
-     * @return object with the given id
+     * @param objects Instances of the class the dao instance is holding
+     * @return the objects that were inserted, in the order they were given
      */
-    public T getById(ConnectionSource connectionSource, int id) {
-        Object object = null;
-        String sql = "SELECT * FROM " + tableName + " WHERE id = " + id;
-        try(Connection conn = connectionSource.connect(); PreparedStatement ps = conn.prepareStatement(sql)) {
-            ResultSet rs = ps.executeQuery();
-            List<Method> setters = getSetters(daoClass);
-            List<Field> fields = new ArrayList<>();
-            fields.add(BaseClass.class.getDeclaredFields()[0]);
-            Field[] fs = daoClass.getDeclaredFields();
-            Collections.addAll(fields, fs);
-            while(rs.next()) {
-                object = daoClass.newInstance();
-                int index = 1;
-                for(int i = 0; i < fields.size(); i++) {
-                    if(fields.get(i).getAnnotations().length > 0 && fields.get(i).getAnnotations()[0] instanceof ForeignKey) {
-                        ForeignKey fk = (ForeignKey) fields.get(i).getAnnotations()[0];
-                        int reference = rs.getInt(index);
-                        for(int j = 0; j < DaoManager.getDaoList().size(); j++) {
-                            if(DaoManager.getDaoList().get(j).getDaoClass().equals(fk.refClass())) {
-                                Object refObject = DaoManager.getDaoList().get(j).getById(connectionSource, reference);
-                                setters.get(i).invoke(object, refObject);
-                                index++;
-                            }
-                        }
-                    } else {
-                        setters.get(i).invoke(object, rs.getObject(index));
-                        index++;
-                    }
-                }
+    public List<T> insertAll(ConnectionSource connectionSource, Collection<T> objects) {
+        List<T> inserted = new ArrayList<>();
+        if(objects.isEmpty()) {
+            return inserted;
+        }
+        WriteQueue queue = connectionSource.getWriteQueue();
+        if(queue != null) {
+            for(T object : objects) {
+                queue.insert(this, object);
             }
-            return (T) object;
-        } catch (SQLException | IllegalAccessException | InstantiationException | InvocationTargetException throwables) {
-            logger.error("Could not find what you were looking for.", throwables);
+            inserted.addAll(objects);
+            return inserted;
         }
-        return null;
+        if(!tableEnsured) {
+            createTable(connectionSource);
+        }
+        boolean commitChunks = !connectionSource.isTransactional();
+        String sql = insertSql;
+        try (OperationTimer timer = metrics.start(Operation.INSERT_ALL, connectionSource);
+             Connection conn = timer.connected(connectionSource.connect()); PreparedStatement ps = conn.prepareStatement(sql, GENERATED_KEYS)) {
+            timer.statement(sql, columnNames.size());
+            if(commitChunks) {
+                conn.setAutoCommit(false);
+            }
+            try {
+                insertBatches(connectionSource, conn, ps, objects, commitChunks, inserted, null);
+            } finally {
+                timer.wrote(inserted.size());
+                timer.executed();
+            }
+        } catch (SQLException e) {
+            metrics.failed(Operation.INSERT_ALL);
+            logger.error("Could not insert records; " + inserted.size() + " of " + objects.size() + " were inserted.", e);
+        }
+        return inserted;
     }
 
     /**
-     * Retrieves the most recently created object from the table
+     * Sends objects through an insert or upsert statement in batches of batchSize
      * @param connectionSource instance of the database connection
-     * @return the last row of the table as an object
+     * @param conn connection the batches run on
+     * @param ps insert or upsert statement returning generated ids
+     * @param objects objects to insert
+     * @param commitChunks true to commit after every batch
+     * @param inserted receives the objects of each successful batch
+     * @param conflictKey conflict key of an upsert statement, or null for a plain insert
+     * @throws SQLException if a batch fails
      */
-    public T getLastRecordOf(ConnectionSource connectionSource) {
-        Object object = null;
-        String sql = "SELECT * FROM " + tableName + " ORDER BY id DESC LIMIT 1;";
-        try(Connection conn = connectionSource.connect(); PreparedStatement ps = conn.prepareStatement(sql)) {
-            ResultSet rs = ps.executeQuery();
-            List<Method> setters = getSetters(daoClass);
-            List<Field> fields = new ArrayList<>();
-            fields.add(BaseClass.class.getDeclaredFields()[0]);
-            Field[] fs = daoClass.getDeclaredFields();
-            Collections.addAll(fields, fs);
-            while(rs.next()) {
-                object = daoClass.newInstance();
-                int index = 1;
-                for(int i = 0; i < fields.size(); i++) {
-                    if(fields.get(i).getAnnotations().length > 0 && fields.get(i).getAnnotations()[0] instanceof ForeignKey) {
-                        ForeignKey fk = (ForeignKey) fields.get(i).getAnnotations()[0];
-                        int reference = rs.getInt(index);
-                        for(int j = 0; j < DaoManager.getDaoList().size(); j++) {
-                            if(DaoManager.getDaoList().get(j).getDaoClass().equals(fk.refClass())) {
-                                Object refObject = DaoManager.getDaoList().get(j).getById(connectionSource, reference);
-                                setters.get(i).invoke(object, refObject);
-                                index++;
-                            }
-                        }
-                    } else {
-                        setters.get(i).invoke(object, rs.getObject(index));
-                        index++;
-                    }
-                }
+    private void insertBatches(ConnectionSource connectionSource, Connection conn, PreparedStatement ps, Collection<T> objects,
+                               boolean commitChunks, List<T> inserted, List<String> conflictKey) throws SQLException {
+        List<T> chunk = new ArrayList<>(Math.min(batchSize, objects.size()));
+        for(T object : objects) {
+            bindUpsert(ps, object, conflictKey);
+            ps.addBatch();
+            chunk.add(object);
+            if(chunk.size() >= batchSize) {
+                executeInsertBatch(connectionSource, conn, ps, chunk, commitChunks, conflictKey != null);
+                inserted.addAll(chunk);
+                chunk.clear();
             }
-            return (T) object;
-        } catch (SQLException | IllegalAccessException | InstantiationException | InvocationTargetException throwables) {
-            logger.error("Could not find what you were looking for.", throwables);
         }
-        return null;
+        if(!chunk.isEmpty()) {
+            executeInsertBatch(connectionSource, conn, ps, chunk, commitChunks, conflictKey != null);
+            inserted.addAll(chunk);
+        }
     }
 
     /**
-     * Gets all rows from the table
+     * Executes one insert batch, writing the generated ids onto the objects of the chunk
      * @param connectionSource instance of the database connection
-     * @return List of objects based on the table rows
+     * @param conn connection the batch runs on
+     * @param ps statement holding the batch
+     * @param chunk objects in the batch, in the order they were added
+     * @param commit true to commit the batch, or roll it back if it fails
+     * @param upsert true if the batch is an upsert; a failed upsert restores the ids the objects had instead of clearing them
+     * @throws SQLException if the batch fails
      */
-    public ArrayList<T> getAll(ConnectionSource connectionSource) {
-        ArrayList<T> allElements = new ArrayList<>();
-        String sql = "SELECT * FROM " + tableName;
-        try(Connection conn = connectionSource.connect(); PreparedStatement ps = conn.prepareStatement(sql)) {
-            ResultSet rs = ps.executeQuery();
-            List<Method> setters = getSetters(daoClass);
-            List<Field> fields = new ArrayList<>();
-            fields.add(BaseClass.class.getDeclaredFields()[0]);
-            Field[] fs = daoClass.getDeclaredFields();
-            Collections.addAll(fields, fs);
-            while(rs.next()) {
-                Object object = daoClass.newInstance();
-                int index = 1;
-                for(int i = 0; i < fields.size(); i++) {
-                    if(fields.get(i).getAnnotations().length > 0 && fields.get(i).getAnnotations()[0] instanceof ForeignKey) {
-                        ForeignKey fk = (ForeignKey) fields.get(i).getAnnotations()[0];
-                        int reference = rs.getInt(index);
-                        for(int j = 0; j < DaoManager.getDaoList().size(); j++) {
-                            if(DaoManager.getDaoList().get(j).getDaoClass().equals(fk.refClass())) {
-                                Object refObject = DaoManager.getDaoList().get(j).getById(connectionSource, reference);
-                                setters.get(i).invoke(object, refObject);
-                                index++;
-                            }
-                        }
-                    } else {
-                        setters.get(i).invoke(object, rs.getObject(index));
-                        index++;
+    private void executeInsertBatch(ConnectionSource connectionSource, Connection conn, PreparedStatement ps, List<T> chunk,
+                                    boolean commit, boolean upsert) throws SQLException {
+        int[] previousIds = new int[chunk.size()];
+        for(int i = 0; upsert && i < previousIds.length; i++) {
+            previousIds[i] = EntityDescriptor.getId(chunk.get(i));
+        }
+        try {
+            ps.executeBatch();
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                for(T object : chunk) {
+                    if(!keys.next()) {
+                        break;
                     }
+                    EntityDescriptor.setId(object, keys.getInt(1));
                 }
-                allElements.add((T) object);
             }
-            return allElements;
-        } catch (SQLException | IllegalAccessException | InstantiationException | InvocationTargetException throwables) {
-            throwables.printStackTrace();
+            if(commit) {
+                conn.commit();
+            }
+            for(T object : chunk) {
+                inserted(connectionSource, object);
+            }
+        } catch (SQLException e) {
+            if(commit) {
+                conn.rollback();
+            }
+            for(int i = 0; i < previousIds.length; i++) {
+                EntityDescriptor.setId(chunk.get(i), previousIds[i]);
+            }
+            throw e;
         }
-        return allElements;
     }
 
     /**
-     * Updates a row by passing in the id and the updated object
+     * Records a newly inserted or upserted object for dirty tracking, the entity cache and the session identity map
      * @param connectionSource instance of the database connection
-     * @param id primary key
-     * @param obj updated object
-     * @return the newly updated object
+     * @param object inserted object, with its generated id
      */
-    public T updateById(ConnectionSource connectionSource, int id, T obj) {
-        List<Method> getters = getGetters(daoClass);
-        List<Object> updates = new ArrayList<>();
-        Field[] fields = daoClass.getDeclaredFields();
-        for(Field field: fields) {
-            for(Method m: getters) {
-                if(m.getName().toLowerCase().contains(field.getName().toLowerCase())) {
-                    if(field.getAnnotations()[0] instanceof ForeignKey) {
-                        ForeignKey fk = (ForeignKey) field.getAnnotations()[0];
-                        try {
-                            field.setAccessible(true);
-                            Object refObject = field.get(obj);
-                            Method method = refObject.getClass().getMethod("getId");
-                            int refId = (int) method.invoke(refObject);
-                            updates.add(refId);
-                        } catch (IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
-                            e.printStackTrace();
-                        }
-                    } else {
-                        try {
-                            Class<?> returnType = m.getReturnType();
-                            if(returnType.equals(java.lang.String.class)) {
-                                String s = (String) m.invoke(obj);
-                                s = "'" + s + "'";
-                                updates.add(s);
-                            } else if (returnType.equals(boolean.class)) {
-                                boolean b = (boolean) m.invoke(obj);
-                                updates.add(b);
-                            } else if (returnType.equals(int.class)) {
-                                int num = (int) m.invoke(obj);
-                                updates.add(num);
-                            } else if (returnType.equals(long.class)) {
-                                long bigNum = (long) m.invoke(obj);
-                                updates.add(bigNum);
-                            } else if (returnType.equals(char.class)) {
-                                char c = (char) m.invoke(obj);
-                                updates.add(c);
-                            }
-                        } catch (IllegalAccessException | InvocationTargetException e) {
-                            e.printStackTrace();
-                        }
+    private void inserted(ConnectionSource connectionSource, T object) {
+        int id = EntityDescriptor.getId(object);
+        if(dirtyTracking) {
+            ((BaseClass) object).loadedState = snapshot(object);
+        }
+        invalidate(connectionSource, id);
+        connectionSource.registerLoaded(daoClass, id, object);
+    }
+
+    /**
+     * Inserts a row, or updates the row it conflicts with, in one INSERT ... ON CONFLICT DO UPDATE statement
+     * With no conflict columns rows are matched by id, and an object with id 0 gets a new id; otherwise the columns must be covered by a unique index, such as one declared with Index(unique = true)
+     * The id of the inserted or updated row is written onto the object
+     * In a write-behind Transaction the queued writes are flushed first, since the statement runs immediately
+     * @param connectionSource instance of the database connection
+     * @param object Instance of the class the dao instance is holding
+     * @param conflictColumns columns of the unique index that identifies the row; none to match by id
+     * @return returns the object that has been written to the DB
+     */
+    public T upsert(ConnectionSource connectionSource, T object, String... conflictColumns) {
+        List<String> conflictKey = conflictKey(conflictColumns);
+        if(!tableEnsured) {
+            createTable(connectionSource);
+        }
+        String sql = getUpsertSql(conflictKey);
+        int previousId = EntityDescriptor.getId(object);
+        try (OperationTimer timer = metrics.start(Operation.UPSERT, connectionSource);
+             Connection conn = timer.connected(connectionSource.connect())) {
+            flushWriteQueue(connectionSource, conn);
+            try (PreparedStatement ps = conn.prepareStatement(sql, GENERATED_KEYS)) {
+                timer.statement(sql, bindUpsert(ps, object, conflictKey) - 1);
+                timer.wrote(ps.executeUpdate());
+                timer.executed();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    if(keys.next()) {
+                        EntityDescriptor.setId(object, keys.getInt(1));
                     }
                 }
             }
+            inserted(connectionSource, object);
+        } catch (SQLException e) {
+            EntityDescriptor.setId(object, previousId);
+            metrics.failed(Operation.UPSERT);
+            logger.error(e.getMessage(), e);
         }
+        return object;
+    }
 
-        String updateStatement = Arrays.toString(updates.toArray()).replace("[", "").replace("]", "");
-
-        String sql = "UPDATE " + tableName + " SET (" + String.join(", ", columnNames) + ") = (" +
-                updateStatement + ") WHERE id = " + id;
-        try(Connection conn = connectionSource.connect(); PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.executeUpdate();
-            obj = getById(connectionSource, id);
-
-        } catch (SQLException throwables) {
-            throwables.printStackTrace();
+    /**
+     * Upserts many rows over one connection and one prepared statement using JDBC batches
+     * Each chunk of batchSize rows is sent as one batch and committed as one transaction, and the resulting ids are written onto the objects
+     * If a chunk fails it is rolled back and no further chunks are sent
+     * Inside a Transaction the chunks are not committed separately; they commit with the transaction
+     * @param connectionSource instance of the database connection
+     * @param objects Instances of the class the dao instance is holding
+     * @param conflictColumns columns of the unique index that identifies each row; none to match by id
+     * @return the objects that were written, in the order they were given
+     */
+    public List<T> upsertAll(ConnectionSource connectionSource, Collection<T> objects, String... conflictColumns) {
+        List<String> conflictKey = conflictKey(conflictColumns);
+        List<T> upserted = new ArrayList<>();
+        if(objects.isEmpty()) {
+            return upserted;
         }
-        return obj;
+        if(!tableEnsured) {
+            createTable(connectionSource);
+        }
+        boolean commitChunks = !connectionSource.isTransactional();
+        String sql = getUpsertSql(conflictKey);
+        try (OperationTimer timer = metrics.start(Operation.UPSERT_ALL, connectionSource);
+             Connection conn = timer.connected(connectionSource.connect())) {
+            flushWriteQueue(connectionSource, conn);
+            try (PreparedStatement ps = conn.prepareStatement(sql, GENERATED_KEYS)) {
+                timer.statement(sql, (ID_KEY.equals(conflictKey) ? 1 : 0) + columnNames.size());
+                if(commitChunks) {
+                    conn.setAutoCommit(false);
+                }
+                try {
+                    insertBatches(connectionSource, conn, ps, objects, commitChunks, upserted, conflictKey);
+                } finally {
+                    timer.wrote(upserted.size());
+                    timer.executed();
+                }
+            }
+        } catch (SQLException e) {
+            metrics.failed(Operation.UPSERT_ALL);
+            logger.error("Could not upsert records; " + upserted.size() + " of " + objects.size() + " were written.", e);
+        }
+        return upserted;
     }
 
     /**
-     * Deletes an object with the given id
+     * Writes the queued changes of a write-behind transaction before a statement that must see them
      * @param connectionSource instance of the database connection
-     * @param id primary key
-     * @return true if successfully deleted; false otherwise
+     * @param conn connection of the transaction
+     * @throws SQLException if a queued write fails
      */
-    public boolean deleteById(ConnectionSource connectionSource, int id) {
-        int rowsDeleted = 0;
-        String sql = "DELETE FROM " + tableName + " WHERE id = " + id;
-        try(Connection conn = connectionSource.connect(); PreparedStatement ps = conn.prepareStatement(sql)) {
-            rowsDeleted = ps.executeUpdate();
-            if(rowsDeleted > 0) {
-                return true;
-            } else {
-                return false;
-            }
-        } catch (SQLException throwables) {
-            logger.error("Could not delete record", throwables);
+    private static void flushWriteQueue(ConnectionSource connectionSource, Connection conn) throws SQLException {
+        WriteQueue queue = connectionSource.getWriteQueue();
+        if(queue != null) {
+            queue.flush(connectionSource, conn);
         }
-        return false;
     }
 
     /**
-     * Gets the annotation from the field
-     * @param field Field whose annotation will be returned
-     * @return the annotation of the field
+     * Writes inserts queued by a write-behind transaction
+     * @param connectionSource the transaction
+     * @param conn connection of the transaction
+     * @param objects queued objects
+     * @throws SQLException if a batch fails
      */
-    private Annotation getFieldAnnotation(Field field) {
-        Annotation[] annotations = field.getAnnotations();
-        return annotations[0];
+    @SuppressWarnings("unchecked")
+    void flushInserts(ConnectionSource connectionSource, Connection conn, List<Object> objects) throws SQLException {
+        if(!tableEnsured) {
+            createTable(connectionSource);
+        }
+        List<T> inserted = new ArrayList<>();
+        String sql = insertSql;
+        try (OperationTimer timer = metrics.start(Operation.INSERT_ALL, connectionSource); PreparedStatement ps = conn.prepareStatement(sql, GENERATED_KEYS)) {
+            timer.statement(sql, columnNames.size());
+            insertBatches(connectionSource, conn, ps, (List<T>) objects, false, inserted, null);
+            timer.wrote(inserted.size());
+            timer.executed();
+        } catch (SQLException e) {
+            metrics.failed(Operation.INSERT_ALL);
+            throw e;
+        }
     }
 
     /**
-     * Gets the annotation from the class
-     * @param clazz Class whose annotation will be returned
-     * @return the annotation of the Class
+     * Writes updates queued by a write-behind transaction, one batch per set of written columns
+     * @param connectionSource the transaction
+     * @param conn connection of the transaction
+     * @param objects queued objects by id
+     * @throws SQLException if a batch fails
      */
-    private Annotation getClassAnnotation(Class<?> clazz) {
-        Annotation[] annotations = clazz.getAnnotations();
-        return annotations[0];
+    @SuppressWarnings("unchecked")
+    void flushUpdates(ConnectionSource connectionSource, Connection conn, Map<Integer, Object> objects) throws SQLException {
+        Map<BitSet, List<Integer>> shapes = new LinkedHashMap<>();
+        Map<Integer, Object[]> values = new HashMap<>();
+        for(Map.Entry<Integer, Object> entry : objects.entrySet()) {
+            T obj = (T) entry.getValue();
+            Object[] state = snapshot(obj);
+            BitSet changed = changedColumns(entry.getKey(), obj, state);
+            if(!changed.isEmpty()) {
+                shapes.computeIfAbsent(changed, (c) -> new ArrayList<>()).add(entry.getKey());
+                values.put(entry.getKey(), state);
+            }
+        }
+        for(Map.Entry<BitSet, List<Integer>> shape : shapes.entrySet()) {
+            BitSet changed = shape.getKey();
+            String sql = getUpdateSql(changed);
+            try (OperationTimer timer = metrics.start(Operation.UPDATE, connectionSource); PreparedStatement ps = conn.prepareStatement(sql)) {
+                timer.statement(sql, changed.cardinality() + 1);
+                for(Integer id : shape.getValue()) {
+                    bindUpdate(ps, changed, values.get(id), id);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                timer.wrote(shape.getValue().size());
+                timer.executed();
+            } catch (SQLException e) {
+                metrics.failed(Operation.UPDATE);
+                throw e;
+            }
+            for(Integer id : shape.getValue()) {
+                updated(connectionSource, id, (T) objects.get(id), values.get(id));
+            }
+        }
     }
 
     /**
-     * Returns table name
-     * @param clazz Class the dao is holding
-     * @return String table name
+     * Writes deletes queued by a write-behind transaction with a single statement
+     * @param connectionSource the transaction
+     * @param conn connection of the transaction
+     * @param ids queued ids
+     * @throws SQLException if the statement fails
      */
-    private String getTableName(Class<?> clazz) {
-        Annotation annotation = getClassAnnotation(clazz);
-        if(annotation instanceof Entity) {
-            Entity tName = (Entity) annotation;
-            return tName.tableName();
+    void flushDeletes(ConnectionSource connectionSource, Connection conn, Collection<Integer> ids) throws SQLException {
+        String sql = deleteByIdsSql;
+        try (OperationTimer timer = metrics.start(Operation.DELETE, connectionSource); PreparedStatement ps = conn.prepareStatement(sql)) {
+            timer.statement(sql, 1);
+            timer.wrote(deleteInChunks(conn, ps, new ArrayList<>(ids)));
+            timer.executed();
+        } catch (SQLException e) {
+            metrics.failed(Operation.DELETE);
+            throw e;
         }
-        return "";
+        deleted(connectionSource, ids);
     }
 
     /**
-     * Gets fields from the class
-     * @param clazz class the dao is holding
-     * @return all declared fields
+     * Selects an object by its ID
+     * @param connectionSource instance of the database connection
+     * @param id id number of the object being retrieved
+     * @return object with the given id
      */
-    private Field[] getClassFields(Class<?> clazz) {
-        return clazz.getDeclaredFields();
+    public T getById(ConnectionSource connectionSource, int id) {
+        try (OperationTimer timer = metrics.start(Operation.GET_BY_ID, connectionSource)) {
+            LoadContext context = loadContext(connectionSource);
+            T known = context.get(daoClass, id);
+            if(known != null) {
+                return known;
+            }
+            if(cache != null && descriptor.getForeignKeys().isEmpty()) {
+                Object[] state = cache.get(id);
+                if(state != null) {
+                    known = hydrate(id, state, new Integer[0]);
+                    context.put(daoClass, id, known);
+                    return known;
+                }
+            }
+            try(Connection conn = timer.connected(connectionSource.connect())) {
+                return loadByIds(conn, Collections.singleton(id), context, timer).get(id);
+            } catch (SQLException | RuntimeException throwables) {
+                metrics.failed(Operation.GET_BY_ID);
+                logger.error("Could not find what you were looking for.", throwables);
+            }
+            return null;
+        }
     }
 
     /**
-     * gets the name of the primary column
-     * @param clazz class the dao is holding
-     * @return String name of the primary column
+     * Selects the objects with the given ids
+     * Ids already loaded or cached are served without a query; the rest are read with one WHERE id = ANY(?) query per chunk of ids
+     * @param connectionSource instance of the database connection
+     * @param ids primary keys
+     * @return objects by id, in the order the ids were given; ids with no row are absent
      */
-    private String getPrimaryColName (Class<?> clazz) {
-        Field[] fields = clazz.getDeclaredFields();
-        for(Field field: fields) {
-            Annotation annotation = getFieldAnnotation(field);
-            if(annotation instanceof Primary) {
-                Primary primary = (Primary) annotation;
-                return primary.columnName();
+    public Map<Integer, T> getByIds(ConnectionSource connectionSource, Collection<Integer> ids) {
+        Set<Integer> requested = new LinkedHashSet<>();
+        for(Integer id : ids) {
+            if(id != null) {
+                requested.add(id);
+            }
+        }
+        Map<Integer, T> ordered = new LinkedHashMap<>();
+        try (OperationTimer timer = metrics.start(Operation.GET_BY_IDS, connectionSource)) {
+            if(requested.isEmpty()) {
+                return ordered;
+            }
+            Map<Integer, T> found;
+            try(Connection conn = timer.connected(connectionSource.connect())) {
+                found = loadByIds(conn, requested, loadContext(connectionSource), timer);
+            } catch (SQLException | RuntimeException throwables) {
+                metrics.failed(Operation.GET_BY_IDS);
+                logger.error("Could not find what you were looking for.", throwables);
+                return ordered;
+            }
+            for(Integer id : requested) {
+                T object = found.get(id);
+                if(object != null) {
+                    ordered.put(id, object);
+                }
             }
+            return ordered;
+        }
+    }
+
+    /**
+     * Retrieves the most recently created object from the table
+     * @param connectionSource instance of the database connection
+     * @return the last row of the table as an object
+     */
+    public T getLastRecordOf(ConnectionSource connectionSource) {
+        String sql = selectLastSql;
+        try(OperationTimer timer = metrics.start(Operation.QUERY, connectionSource);
+            Connection conn = timer.connected(connectionSource.connect()); PreparedStatement ps = conn.prepareStatement(sql)) {
+            timer.statement(sql, Collections.emptyList());
+            ResultSet rs = ps.executeQuery();
+            timer.executed();
+            List<T> objects = mapRows(conn, rs, sql, loadContext(connectionSource));
+            timer.mapped(objects.size());
+            return objects.isEmpty() ? null : objects.get(0);
+        } catch (SQLException | RuntimeException throwables) {
+            metrics.failed(Operation.QUERY);
+            logger.error("Could not find what you were looking for.", throwables);
         }
-        return "";
+        return null;
     }
 
     /**
-     * Takes in a field and converts its type to its SQL datatype equivalent
-     * @param field field whose datatype needs to be parsed
-     * @return String of the SQL datatype name
+     * Gets all rows from the table
+     * Foreign keys are loaded with one query per referenced table rather than one per row
+     * @param connectionSource instance of the database connection
+     * @return List of objects based on the table rows
      */
-    private String getSqlType(Field field) {
-        String type = field.getGenericType().getTypeName().toLowerCase();
-        if(type.equals("byte") || type.equals("short")) {
-            return "int";
-        } else if (type.equals("long")) {
-            return "bigint";
-        } else if (type.equals("char") || type.equals("java.lang.string")) {
-            return "varchar";
-        } else if (type.equals("double")) {
-            return "float";
-        } else {
-            return type;
+    public ArrayList<T> getAll(ConnectionSource connectionSource) {
+        ArrayList<T> allElements = new ArrayList<>();
+        String sql = selectAllSql;
+        try(OperationTimer timer = metrics.start(Operation.GET_ALL, connectionSource);
+            Connection conn = timer.connected(connectionSource.connect()); PreparedStatement ps = conn.prepareStatement(sql)) {
+            timer.statement(sql, Collections.emptyList());
+            ResultSet rs = ps.executeQuery();
+            timer.executed();
+            allElements.addAll(mapRows(conn, rs, sql, loadContext(connectionSource)));
+            timer.mapped(allElements.size());
+            return allElements;
+        } catch (SQLException | RuntimeException throwables) {
+            metrics.failed(Operation.GET_ALL);
+            logger.error("Could not retrieve all records.", throwables);
         }
+        return allElements;
     }
 
     /**
-     * Gets all getter methods of a class
-     * @param clazz class the dao is holding
-     * @return List of all class getter methods
+     * Streams all rows from the table through a server-side cursor, fetching fetchSize rows at a time
+     * Rows are mapped as the stream is consumed, and foreign keys are loaded once per fetched chunk
+     * The stream holds a connection until it is closed, so use it in a try-with-resources block
+     * @param connectionSource instance of the database connection
+     * @return lazily mapped stream of objects; empty if the query could not be started
      */
-    private List<Method> getGetters(Class<?> clazz) {
-        List<Method> getters = new ArrayList<>();
-        Method[] superMethods = clazz.getSuperclass().getDeclaredMethods();
-        for(Method m:superMethods) {
-            if(m.getName().contains("get")) {
-                getters.add(m);
-            }
+    public Stream<T> stream(ConnectionSource connectionSource) {
+        String sql = selectAllSql;
+        OperationTimer timer = metrics.start(Operation.STREAM);
+        Connection connection = null;
+        PreparedStatement ps = null;
+        ResultSet rs;
+        try {
+            connection = timer.connected(connectionSource.connect());
+            connection.setAutoCommit(false);
+            ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            rs = ps.executeQuery();
+            timer.executed();
+        } catch (SQLException | RuntimeException throwables) {
+            metrics.failed(Operation.STREAM);
+            logger.error("Could not stream records.", throwables);
+            closeQuietly(ps, connection);
+            timer.close();
+            return Stream.empty();
         }
-        Field[] fields = clazz.getDeclaredFields();
-        for(Field field:fields) {
-            Method[] methods = clazz.getDeclaredMethods();
-            for(Method method:methods) {
-                if(method.getName().contains("get") && method.getName().toLowerCase().contains(field.getName().toLowerCase())) {
-                    getters.add(method);
+        Connection conn = connection;
+        Spliterator<T> rows = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            private final Deque<T> buffer = new ArrayDeque<>();
+            private boolean exhausted = false;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                if(buffer.isEmpty() && !exhausted) {
+                    try {
+                        List<T> chunk = mapRows(conn, rs, sql, loadContext(connectionSource), fetchSize);
+                        timer.mapped(chunk.size());
+                        exhausted = chunk.size() < fetchSize;
+                        buffer.addAll(chunk);
+                    } catch (SQLException e) {
+                        metrics.failed(Operation.STREAM);
+                        logger.error("Could not read the next records.", e);
+                        throw new IllegalStateException("Could not read the next records from " + tableName, e);
+                    }
                 }
+                T object = buffer.poll();
+                if(object == null) {
+                    return false;
+                }
+                action.accept(object);
+                return true;
             }
+        };
+        PreparedStatement statement = ps;
+        return StreamSupport.stream(rows, false).onClose(() -> {
+            closeQuietly(statement, conn);
+            timer.close();
+        });
+    }
+
+    /**
+     * Passes every row of the table to the consumer as it is read, fetching fetchSize rows at a time
+     * @param connectionSource instance of the database connection
+     * @param consumer receives each object
+     */
+    public void forEach(ConnectionSource connectionSource, Consumer<? super T> consumer) {
+        try(Stream<T> rows = stream(connectionSource)) {
+            rows.forEach(consumer);
         }
-        return getters;
     }
 
     /**
-     * Get's the class the dao is holding
-     * @return class the doa is holding
+     * Gets a page of rows ordered by id using keyset pagination
+     * Each page seeks directly past the last id of the previous page, so deep pages cost the same as the first
+     * @param connectionSource instance of the database connection
+     * @param pageSize maximum number of rows in the page
+     * @param token continuation token from the previous page, or null for the first page
+     * @return the page of objects
      */
-    public Class<?> getDaoClass() {
-        return daoClass;
+    public Page<T> getPage(ConnectionSource connectionSource, int pageSize, String token) {
+        return getPage(connectionSource, "id", pageSize, token);
     }
 
     /**
-     * Gets all setter methods on a class
-     * @param clazz class the dao is holding
-     * @return all class setter methods
+     * Gets a page of rows ordered by a column, then by id, using keyset pagination
+     * The column should be indexed and not null; rows with a null value in it are not returned
+     * @param connectionSource instance of the database connection
+     * @param columnName column the rows are ordered by; "id" orders by primary key only
+     * @param pageSize maximum number of rows in the page
+     * @param token continuation token from the previous page of the same ordering, or null for the first page
+     * @return the page of objects
+     * @throws IllegalArgumentException if the table has no such column or the page size is not positive
      */
-    private List<Method> getSetters(Class<?> clazz) {
-        List<Method> setters = new ArrayList<>();
-        Method[] superMethods = clazz.getSuperclass().getDeclaredMethods();
-        for(Method m:superMethods) {
-            if(m.getName().contains("set")) {
-                setters.add(m);
-            }
+    public Page<T> getPage(ConnectionSource connectionSource, String columnName, int pageSize, String token) {
+        ColumnDescriptor column = "id".equals(columnName) ? null : descriptor.getColumn(columnName);
+        if(column == null && !"id".equals(columnName)) {
+            throw new IllegalArgumentException(tableName + " has no column " + columnName);
+        }
+        if(pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be at least 1");
         }
-        Field[] fields = clazz.getDeclaredFields();
-        for(Field field:fields) {
-            Method[] methods = clazz.getDeclaredMethods();
-            for(Method method:methods) {
-                if(method.getName().toLowerCase().contains("set" + field.getName().toLowerCase()) && method.getName().toLowerCase().contains(field.getName().toLowerCase())) {
-                    setters.add(method);
+        String sql = pageSql.get(columnName)[token == null ? 0 : 1];
+        try(OperationTimer timer = metrics.start(Operation.GET_PAGE, connectionSource);
+            Connection conn = timer.connected(connectionSource.connect()); PreparedStatement ps = conn.prepareStatement(sql)) {
+            List<Object> params = new ArrayList<>();
+            if(token != null) {
+                String[] key = decodePageToken(token);
+                if(column != null && key.length < 2) {
+                    throw new IllegalArgumentException("Page token was not issued for ordering by " + columnName);
                 }
+                if(column != null) {
+                    params.add(column.parse(key[1]));
+                }
+                params.add(Integer.parseInt(key[0]));
+            }
+            params.add(pageSize + 1);
+            bindParameters(conn, ps, params);
+            timer.statement(sql, params);
+            ResultSet rs = ps.executeQuery();
+            timer.executed();
+            List<T> items = mapRows(conn, rs, sql, loadContext(connectionSource));
+            timer.mapped(items.size());
+            boolean hasNext = items.size() > pageSize;
+            if(hasNext) {
+                items = items.subList(0, pageSize);
+            }
+            String nextToken = null;
+            if(hasNext) {
+                T last = items.get(items.size() - 1);
+                nextToken = encodePageToken(EntityDescriptor.getId(last), column == null ? null : column.getBindValue(last));
+            }
+            return new Page<>(items, nextToken, hasNext);
+        } catch (SQLException | RuntimeException throwables) {
+            metrics.failed(Operation.GET_PAGE);
+            logger.error("Could not retrieve page.", throwables);
+        }
+        return new Page<>(new ArrayList<>(), null, false);
+    }
+
+    /**
+     * Gets a page of rows ordered by id using LIMIT and OFFSET
+     * Prefer getPage with a continuation token for deep pages; offset scans grow slower the further in they start
+     * @param connectionSource instance of the database connection
+     * @param pageNumber zero-based page number
+     * @param pageSize maximum number of rows in the page
+     * @return the page of objects; its token is always null
+     * @throws IllegalArgumentException if the page number is negative or the page size is not positive
+     */
+    public Page<T> getPageByOffset(ConnectionSource connectionSource, int pageNumber, int pageSize) {
+        if(pageNumber < 0 || pageSize <= 0) {
+            throw new IllegalArgumentException("Page number must be at least 0 and page size at least 1");
+        }
+        String sql = selectOffsetPageSql;
+        try(OperationTimer timer = metrics.start(Operation.GET_PAGE, connectionSource);
+            Connection conn = timer.connected(connectionSource.connect()); PreparedStatement ps = conn.prepareStatement(sql)) {
+            List<Object> params = Arrays.asList(pageSize + 1, (long) pageNumber * pageSize);
+            bindParameters(conn, ps, params);
+            timer.statement(sql, params);
+            ResultSet rs = ps.executeQuery();
+            timer.executed();
+            List<T> items = mapRows(conn, rs, sql, loadContext(connectionSource));
+            timer.mapped(items.size());
+            boolean hasNext = items.size() > pageSize;
+            if(hasNext) {
+                items = items.subList(0, pageSize);
             }
+            return new Page<>(items, null, hasNext);
+        } catch (SQLException | RuntimeException throwables) {
+            metrics.failed(Operation.GET_PAGE);
+            logger.error("Could not retrieve page.", throwables);
+        }
+        return new Page<>(new ArrayList<>(), null, false);
+    }
+
+    /**
+     * Starts a query that filters, orders and limits rows in the database
+     * @return a new query against the table
+     */
+    public Query<T> query() {
+        return new Query<>(this);
+    }
+
+    /**
+     * Runs a select statement built by a query
+     * Partially selected objects are kept out of the Session identity map so later reads still load whole rows
+     * @param connectionSource instance of the database connection
+     * @param sql select statement returning the id and the columns to map
+     * @param params statement parameters in order
+     * @param partial true if the statement selects only some columns
+     * @return the matching objects
+     */
+    List<T> list(ConnectionSource connectionSource, String sql, List<Object> params, boolean partial) {
+        try(OperationTimer timer = metrics.start(Operation.QUERY, connectionSource);
+            Connection conn = timer.connected(connectionSource.connect()); PreparedStatement ps = conn.prepareStatement(sql)) {
+            bindParameters(conn, ps, params);
+            timer.statement(sql, params);
+            ResultSet rs = ps.executeQuery();
+            timer.executed();
+            List<T> objects = mapRows(conn, rs, sql, partial ? new LoadContext(connectionSource) : loadContext(connectionSource));
+            timer.mapped(objects.size());
+            return objects;
+        } catch (SQLException | RuntimeException throwables) {
+            metrics.failed(Operation.QUERY);
+            logger.error("Could not run query.", throwables);
         }
-        return setters;
+        return new ArrayList<>();
+    }
+
+    /**
+     * Runs a select statement built by a query and maps each row into a result type
+     * @param connectionSource instance of the database connection
+     * @param sql select statement returning the projected columns in order
+     * @param params statement parameters in order
+     * @param projection mapping from the selected columns to the result type
+     * @param <R> result type
+     * @return the projected rows
+     */
+    <R> List<R> listAs(ConnectionSource connectionSource, String sql, List<Object> params, Projection<R> projection) {
+        try(OperationTimer timer = metrics.start(Operation.QUERY, connectionSource);
+            Connection conn = timer.connected(connectionSource.connect()); PreparedStatement ps = conn.prepareStatement(sql)) {
+            bindParameters(conn, ps, params);
+            timer.statement(sql, params);
+            ResultSet rs = ps.executeQuery();
+            timer.executed();
+            List<R> results = new ArrayList<>();
+            while(rs.next()) {
+                results.add(projection.read(rs));
+            }
+            timer.mapped(results.size());
+            return results;
+        } catch (SQLException | RuntimeException throwables) {
+            metrics.failed(Operation.QUERY);
+            logger.error("Could not run query.", throwables);
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Runs a count statement built by a query
+     * @param connectionSource instance of the database connection
+     * @param sql statement returning a single count
+     * @param params statement parameters in order
+     * @return the count, or 0 if the statement failed
+     */
+    long count(ConnectionSource connectionSource, String sql, List<Object> params) {
+        try(OperationTimer timer = metrics.start(Operation.QUERY, connectionSource);
+            Connection conn = timer.connected(connectionSource.connect()); PreparedStatement ps = conn.prepareStatement(sql)) {
+            bindParameters(conn, ps, params);
+            timer.statement(sql, params);
+            ResultSet rs = ps.executeQuery();
+            timer.executed();
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException | RuntimeException throwables) {
+            metrics.failed(Operation.QUERY);
+            logger.error("Could not run query.", throwables);
+        }
+        return 0;
+    }
+
+    /**
+     * Updates a row by passing in the id and the updated object
+     * With dirty tracking on, only the columns that changed since the object was loaded are written
+     * @param connectionSource instance of the database connection
+     * @param id primary key
+     * @param obj updated object
+     * @return the updated object
+     */
+    public T updateById(ConnectionSource connectionSource, int id, T obj) {
+        return updateById(connectionSource, id, obj, false);
+    }
+
+    /**
+     * Updates a row by passing in the id and the updated object
+     * With dirty tracking on, only the columns that changed since the object was loaded are written
+     * The statement is parameterized and its shape depends only on which columns are written
+     * @param connectionSource instance of the database connection
+     * @param id primary key
+     * @param obj updated object
+     * @param refresh true to read the row back from the database after the update; inside a Session the row replaces the object in the identity map
+     * @return the updated object, or the row as read back when refresh is true
+     */
+    public T updateById(ConnectionSource connectionSource, int id, T obj, boolean refresh) {
+        WriteQueue queue = connectionSource.getWriteQueue();
+        if(queue != null) {
+            queue.update(this, id, obj);
+            return obj;
+        }
+        Object[] values = snapshot(obj);
+        BitSet changed = changedColumns(id, obj, values);
+        if(!changed.isEmpty()) {
+            String sql = getUpdateSql(changed);
+            try(OperationTimer timer = metrics.start(Operation.UPDATE, connectionSource);
+                Connection conn = timer.connected(connectionSource.connect()); PreparedStatement ps = conn.prepareStatement(sql)) {
+                bindUpdate(ps, changed, values, id);
+                timer.statement(sql, changed.cardinality() + 1);
+                timer.wrote(ps.executeUpdate());
+                timer.executed();
+                updated(connectionSource, id, obj, values);
+            } catch (SQLException | RuntimeException throwables) {
+                metrics.failed(Operation.UPDATE);
+                logger.error("Could not update record", throwables);
+                return obj;
+            }
+        }
+        if(refresh) {
+            connectionSource.forgetLoaded(daoClass, id);
+            obj = getById(connectionSource, id);
+        }
+        return obj;
+    }
+
+    /**
+     * Deletes an object with the given id
+     * In a write-behind Transaction the delete is queued and true is returned
+     * @param connectionSource instance of the database connection
+     * @param id primary key
+     * @return true if successfully deleted; false otherwise
+     */
+    public boolean deleteById(ConnectionSource connectionSource, int id) {
+        WriteQueue queue = connectionSource.getWriteQueue();
+        if(queue != null) {
+            queue.delete(this, id);
+            connectionSource.forgetLoaded(daoClass, id);
+            return true;
+        }
+        int rowsDeleted = 0;
+        String sql = deleteByIdSql;
+        try(OperationTimer timer = metrics.start(Operation.DELETE, connectionSource);
+            Connection conn = timer.connected(connectionSource.connect()); PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, id);
+            timer.statement(sql, 1);
+            rowsDeleted = ps.executeUpdate();
+            timer.wrote(rowsDeleted);
+            timer.executed();
+            deleted(connectionSource, id);
+            if(rowsDeleted > 0) {
+                return true;
+            } else {
+                return false;
+            }
+        } catch (SQLException | RuntimeException throwables) {
+            metrics.failed(Operation.DELETE);
+            logger.error("Could not delete record", throwables);
+        }
+        return false;
+    }
+
+    /**
+     * Deletes the objects with the given ids with one WHERE id = ANY(?) statement per chunk of ids
+     * In a write-behind Transaction the deletes are queued and the number of ids queued is returned
+     * @param connectionSource instance of the database connection
+     * @param ids primary keys
+     * @return number of rows deleted
+     */
+    public int deleteByIds(ConnectionSource connectionSource, Collection<Integer> ids) {
+        Set<Integer> requested = new LinkedHashSet<>();
+        for(Integer id : ids) {
+            if(id != null) {
+                requested.add(id);
+            }
+        }
+        if(requested.isEmpty()) {
+            return 0;
+        }
+        WriteQueue queue = connectionSource.getWriteQueue();
+        if(queue != null) {
+            for(Integer id : requested) {
+                queue.delete(this, id);
+                connectionSource.forgetLoaded(daoClass, id);
+            }
+            return requested.size();
+        }
+        String sql = deleteByIdsSql;
+        try(OperationTimer timer = metrics.start(Operation.DELETE_BY_IDS, connectionSource);
+            Connection conn = timer.connected(connectionSource.connect()); PreparedStatement ps = conn.prepareStatement(sql)) {
+            timer.statement(sql, 1);
+            int rowsDeleted = deleteInChunks(conn, ps, new ArrayList<>(requested));
+            timer.wrote(rowsDeleted);
+            timer.executed();
+            return rowsDeleted;
+        } catch (SQLException | RuntimeException throwables) {
+            metrics.failed(Operation.DELETE_BY_IDS);
+            logger.error("Could not delete records", throwables);
+        } finally {
+            deleted(connectionSource, requested);
+        }
+        return 0;
+    }
+
+    /**
+     * Inserts a new row on the asynchronous executor of the connection source
+     * @param connectionSource instance of the database connection
+     * @param object Instance of the class the dao instance is holding
+     * @return future completed with the inserted object
+     */
+    public CompletableFuture<T> insertAsync(ConnectionSource connectionSource, T object) {
+        return connectionSource.supplyAsync(() -> insert(connectionSource, object));
+    }
+
+    /**
+     * Inserts many rows in batches on the asynchronous executor of the connection source
+     * @param connectionSource instance of the database connection
+     * @param objects Instances of the class the dao instance is holding
+     * @return future completed with the objects that were inserted
+     */
+    public CompletableFuture<List<T>> insertAllAsync(ConnectionSource connectionSource, Collection<T> objects) {
+        return connectionSource.supplyAsync(() -> insertAll(connectionSource, objects));
+    }
+
+    /**
+     * Selects an object by its ID on the asynchronous executor of the connection source
+     * @param connectionSource instance of the database connection
+     * @param id primary key
+     * @return future completed with the object, or null if there is no such row
+     */
+    public CompletableFuture<T> getByIdAsync(ConnectionSource connectionSource, int id) {
+        return connectionSource.supplyAsync(() -> getById(connectionSource, id));
+    }
+
+    /**
+     * Selects all rows on the asynchronous executor of the connection source
+     * @param connectionSource instance of the database connection
+     * @return future completed with all objects in the table
+     */
+    public CompletableFuture<ArrayList<T>> getAllAsync(ConnectionSource connectionSource) {
+        return connectionSource.supplyAsync(() -> getAll(connectionSource));
+    }
+
+    /**
+     * Gets one page ordered by id on the asynchronous executor of the connection source
+     * @param connectionSource instance of the database connection
+     * @param pageSize maximum number of rows in the page
+     * @param token token from the previous page, or null for the first page
+     * @return future completed with the page
+     */
+    public CompletableFuture<Page<T>> getPageAsync(ConnectionSource connectionSource, int pageSize, String token) {
+        return connectionSource.supplyAsync(() -> getPage(connectionSource, pageSize, token));
+    }
+
+    /**
+     * Updates an object on the asynchronous executor of the connection source
+     * @param connectionSource instance of the database connection
+     * @param id primary key
+     * @param obj updated object
+     * @return future completed with the updated object
+     */
+    public CompletableFuture<T> updateByIdAsync(ConnectionSource connectionSource, int id, T obj) {
+        return connectionSource.supplyAsync(() -> updateById(connectionSource, id, obj));
+    }
+
+    /**
+     * Upserts an object on the asynchronous executor of the connection source
+     * @param connectionSource instance of the database connection
+     * @param object Instance of the class the dao instance is holding
+     * @param conflictColumns columns of the unique index that identifies the row; none to match by id
+     * @return future completed with the written object
+     */
+    public CompletableFuture<T> upsertAsync(ConnectionSource connectionSource, T object, String... conflictColumns) {
+        return connectionSource.supplyAsync(() -> upsert(connectionSource, object, conflictColumns));
+    }
+
+    /**
+     * Upserts many objects on the asynchronous executor of the connection source
+     * @param connectionSource instance of the database connection
+     * @param objects Instances of the class the dao instance is holding
+     * @param conflictColumns columns of the unique index that identifies each row; none to match by id
+     * @return future completed with the written objects
+     */
+    public CompletableFuture<List<T>> upsertAllAsync(ConnectionSource connectionSource, Collection<T> objects, String... conflictColumns) {
+        return connectionSource.supplyAsync(() -> upsertAll(connectionSource, objects, conflictColumns));
+    }
+
+    /**
+     * Selects the objects with the given ids on the asynchronous executor of the connection source
+     * @param connectionSource instance of the database connection
+     * @param ids primary keys
+     * @return future completed with the objects by id, in the order the ids were given
+     */
+    public CompletableFuture<Map<Integer, T>> getByIdsAsync(ConnectionSource connectionSource, Collection<Integer> ids) {
+        return connectionSource.supplyAsync(() -> getByIds(connectionSource, ids));
+    }
+
+    /**
+     * Deletes an object on the asynchronous executor of the connection source
+     * @param connectionSource instance of the database connection
+     * @param id primary key
+     * @return future completed with true if the row was deleted
+     */
+    public CompletableFuture<Boolean> deleteByIdAsync(ConnectionSource connectionSource, int id) {
+        return connectionSource.supplyAsync(() -> deleteById(connectionSource, id));
+    }
+
+    /**
+     * Deletes the objects with the given ids on the asynchronous executor of the connection source
+     * @param connectionSource instance of the database connection
+     * @param ids primary keys
+     * @return future completed with the number of rows deleted
+     */
+    public CompletableFuture<Integer> deleteByIdsAsync(ConnectionSource connectionSource, Collection<Integer> ids) {
+        return connectionSource.supplyAsync(() -> deleteByIds(connectionSource, ids));
+    }
+
+    /**
+     * Finds the columns an update has to write
+     * @param id primary key being updated
+     * @param obj updated object
+     * @param values current column values of the object
+     * @return indexes of the columns to write; every column unless dirty tracking knows the loaded values
+     */
+    private BitSet changedColumns(int id, T obj, Object[] values) {
+        Object[] loaded = dirtyTracking && EntityDescriptor.getId(obj) == id ? ((BaseClass) obj).loadedState : null;
+        BitSet changed = new BitSet(values.length);
+        for(int i = 0; i < values.length; i++) {
+            if(loaded == null || !Objects.equals(loaded[i], values[i])) {
+                changed.set(i);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Binds the written columns and the id to an update statement
+     * @param ps statement from getUpdateSql
+     * @param changed indexes of the written columns
+     * @param values column values of the object
+     * @param id primary key
+     * @throws SQLException if a parameter cannot be bound
+     */
+    private static void bindUpdate(PreparedStatement ps, BitSet changed, Object[] values, int id) throws SQLException {
+        int index = 1;
+        for(int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+            ps.setObject(index++, values[i]);
+        }
+        ps.setInt(index, id);
+    }
+
+    /**
+     * Records an updated object for dirty tracking, the entity cache and the session identity map
+     * @param connectionSource instance of the database connection
+     * @param id primary key
+     * @param obj updated object
+     * @param values column values that were written
+     */
+    private void updated(ConnectionSource connectionSource, int id, T obj, Object[] values) {
+        invalidate(connectionSource, id);
+        if(dirtyTracking) {
+            ((BaseClass) obj).loadedState = values;
+        }
+        connectionSource.registerLoaded(daoClass, id, obj);
+    }
+
+    /**
+     * Drops a deleted row from the entity caches and the session identity map
+     * @param connectionSource instance of the database connection
+     * @param id primary key
+     */
+    private void deleted(ConnectionSource connectionSource, int id) {
+        invalidate(connectionSource, id);
+        invalidateReferencingCaches(connectionSource);
+        connectionSource.forgetLoaded(daoClass, id);
+    }
+
+    /**
+     * Drops deleted rows from the entity caches and the session identity map
+     * @param connectionSource instance of the database connection
+     * @param ids primary keys
+     */
+    private void deleted(ConnectionSource connectionSource, Collection<Integer> ids) {
+        for(Integer id : ids) {
+            invalidate(connectionSource, id);
+            connectionSource.forgetLoaded(daoClass, id);
+        }
+        invalidateReferencingCaches(connectionSource);
+    }
+
+    /**
+     * Runs a WHERE id = ANY(?) delete once per chunk of ids
+     * @param conn connection the statement belongs to
+     * @param ps prepared delete statement
+     * @param ids ids to delete
+     * @return number of rows deleted
+     * @throws SQLException if a chunk fails
+     */
+    private static int deleteInChunks(Connection conn, PreparedStatement ps, List<Integer> ids) throws SQLException {
+        int deleted = 0;
+        for(int from = 0; from < ids.size(); from += MAX_IDS_PER_STATEMENT) {
+            List<Integer> chunk = ids.subList(from, Math.min(ids.size(), from + MAX_IDS_PER_STATEMENT));
+            ps.setArray(1, conn.createArrayOf("integer", chunk.toArray()));
+            deleted += ps.executeUpdate();
+        }
+        return deleted;
+    }
+
+    /**
+     * Gets the parameterized UPDATE statement that writes a set of columns, building it once per column set
+     * @param changed indexes of the columns to write
+     * @return UPDATE statement with one parameter per written column, followed by the id
+     */
+    private String getUpdateSql(BitSet changed) {
+        return updateSql.computeIfAbsent(changed, (set) -> {
+            List<String> assignments = new ArrayList<>();
+            for(int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1)) {
+                assignments.add(columnNames.get(i) + " = ?");
+            }
+            return "UPDATE " + tableName + " SET " + String.join(", ", assignments) + " WHERE id = ?";
+        });
+    }
+
+    /**
+     * Gets the INSERT ... ON CONFLICT DO UPDATE statement for a conflict key, building it once per key
+     * Matching by id binds the id first and draws a new id from the table's sequence when it is null
+     * @param conflictKey columns whose unique index decides a conflict
+     * @return upsert statement with one parameter per column, preceded by the id when matching by id
+     */
+    private String getUpsertSql(List<String> conflictKey) {
+        return upsertSql.computeIfAbsent(conflictKey, (key) -> {
+            List<String> assignments = new ArrayList<>();
+            for(String columnName : columnNames) {
+                if(!key.contains(columnName)) {
+                    assignments.add(columnName + " = EXCLUDED." + columnName);
+                }
+            }
+            if(assignments.isEmpty()) {
+                for(String columnName : key) {
+                    assignments.add(columnName + " = EXCLUDED." + columnName);
+                }
+            }
+            String columns = String.join(", ", columnNames);
+            String values = String.join(", ", Collections.nCopies(columnNames.size(), "?"));
+            if(ID_KEY.equals(key)) {
+                columns = columnNames.isEmpty() ? "id" : "id, " + columns;
+                String id = "COALESCE(?, nextval(pg_get_serial_sequence('" + tableName + "', 'id')))";
+                values = columnNames.isEmpty() ? id : id + ", " + values;
+            }
+            return "INSERT INTO " + tableName + " (" + columns + ") VALUES (" + values + ")" +
+                    " ON CONFLICT (" + String.join(", ", key) + ") DO UPDATE SET " + String.join(", ", assignments);
+        });
+    }
+
+    /**
+     * Resolves the conflict columns of an upsert
+     * @param conflictColumns column names; none to match by id
+     * @return conflict key
+     * @throws IllegalArgumentException if the table has no such column
+     */
+    private List<String> conflictKey(String... conflictColumns) {
+        if(conflictColumns.length == 0) {
+            return ID_KEY;
+        }
+        List<String> key = new ArrayList<>();
+        for(String columnName : conflictColumns) {
+            key.add(checkColumn(columnName));
+        }
+        return ID_KEY.equals(key) ? ID_KEY : Collections.unmodifiableList(key);
+    }
+
+    /**
+     * Reads the value written to each column of an object
+     * @param object object to read
+     * @return column values in table order; foreign keys as referenced ids
+     */
+    private Object[] snapshot(T object) {
+        List<ColumnDescriptor> columns = descriptor.getColumns();
+        Object[] values = new Object[columns.size()];
+        for(int i = 0; i < values.length; i++) {
+            values[i] = columns.get(i).getBindValue(object);
+        }
+        return values;
+    }
+
+    /**
+     * Binds query parameters to a statement, creating SQL arrays where needed
+     * @param conn connection the statement belongs to
+     * @param ps statement being bound
+     * @param params parameter values in order
+     * @throws SQLException if a parameter cannot be bound
+     */
+    static void bindParameters(Connection conn, PreparedStatement ps, List<Object> params) throws SQLException {
+        for(int i = 0; i < params.size(); i++) {
+            Object param = params.get(i);
+            if(param instanceof Criteria.ArrayParameter) {
+                Criteria.ArrayParameter array = (Criteria.ArrayParameter) param;
+                ps.setArray(i + 1, conn.createArrayOf(array.elementType, array.elements));
+            } else {
+                ps.setObject(i + 1, param);
+            }
+        }
+    }
+
+    /**
+     * Builds the parameterized INSERT statement for the table
+     * @return INSERT statement with one parameter per column
+     */
+    private String buildInsertSql() {
+        List<String> psConditions = new ArrayList<>();
+        for (int i = 0; i < columnNames.size(); i++) {
+            psConditions.add("?");
+        }
+        return "INSERT INTO " + tableName + "(" + String.join(", ", columnNames) + ") VALUES (" +
+                String.join(", ", psConditions) + ")";
+    }
+
+    /**
+     * Binds the column values of an object to consecutive statement parameters
+     * @param ps statement being bound
+     * @param object object whose column values are bound
+     * @param firstIndex index of the first parameter
+     * @return index of the next unbound parameter
+     * @throws SQLException if a parameter cannot be bound
+     */
+    private int bindColumns(PreparedStatement ps, T object, int firstIndex) throws SQLException {
+        int index = firstIndex;
+        for(ColumnDescriptor column : descriptor.getColumns()) {
+            ps.setObject(index++, column.getBindValue(object));
+        }
+        return index;
+    }
+
+    /**
+     * Binds an object to an insert or upsert statement; upserts matching by id bind the id first, or null for a new row
+     * @param ps statement being bound
+     * @param object object whose values are bound
+     * @param conflictKey conflict key of an upsert statement, or null for a plain insert
+     * @return index of the next unbound parameter
+     * @throws SQLException if a parameter cannot be bound
+     */
+    private int bindUpsert(PreparedStatement ps, T object, List<String> conflictKey) throws SQLException {
+        if(!ID_KEY.equals(conflictKey)) {
+            return bindColumns(ps, object, 1);
+        }
+        int id = EntityDescriptor.getId(object);
+        ps.setObject(1, id == 0 ? null : id);
+        return bindColumns(ps, object, 2);
+    }
+
+    /**
+     * Loads the objects with the given ids in a single query, reusing any already present in the load context
+     * Rows read inside a transaction are not added to the shared entity cache, since other threads would see them before the commit
+     * @param conn connection the query runs on
+     * @param ids primary keys to load
+     * @param context objects already loaded during this read
+     * @param timer timer of the calling operation; marks execution and mapping if the query runs
+     * @return loaded objects by id; ids with no row are absent
+     * @throws SQLException if the query fails
+     */
+    Map<Integer, T> loadByIds(Connection conn, Collection<Integer> ids, LoadContext context, OperationTimer timer) throws SQLException {
+        Map<Integer, T> found = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        List<T> cached = new ArrayList<>();
+        List<Integer[]> cachedReferences = new ArrayList<>();
+        for(Integer id : ids) {
+            T object = context.get(daoClass, id);
+            Object[] state = object == null && cache != null ? cache.get(id) : null;
+            if(object != null) {
+                found.put(id, object);
+            } else if(state != null) {
+                Integer[] refs = new Integer[descriptor.getForeignKeys().size()];
+                object = hydrate(id, state, refs);
+                context.put(daoClass, id, object);
+                found.put(id, object);
+                cached.add(object);
+                cachedReferences.add(refs);
+            } else {
+                missing.add(id);
+            }
+        }
+        resolveForeignKeys(conn, cached, cachedReferences, context);
+        if(missing.isEmpty()) {
+            return found;
+        }
+        String sql = selectByIdsSql;
+        Map<Integer, Object[]> states = cache == null || context.isTransactional() ? null : new HashMap<>();
+        long stamp = states == null ? 0 : cache.stamp();
+        try(PreparedStatement ps = conn.prepareStatement(sql)) {
+            for(int from = 0; from < missing.size(); from += MAX_IDS_PER_STATEMENT) {
+                List<Integer> chunk = missing.subList(from, Math.min(missing.size(), from + MAX_IDS_PER_STATEMENT));
+                List<Object> params = Collections.singletonList(new Criteria.ArrayParameter("integer", chunk.toArray()));
+                bindParameters(conn, ps, params);
+                timer.statement(sql, params);
+                ResultSet rs = ps.executeQuery();
+                timer.executed();
+                List<T> objects = mapRows(conn, rs, sql, context, Integer.MAX_VALUE, states);
+                for(T object : objects) {
+                    found.put(EntityDescriptor.getId(object), object);
+                }
+                timer.mapped(objects.size());
+            }
+        }
+        if(states != null) {
+            states.forEach((id, state) -> cache.put(id, state, stamp));
+        }
+        return found;
+    }
+
+    /**
+     * Loads the objects behind a batch of lazy references
+     * @param connectionSource source the references were read through
+     * @param ids referenced ids
+     * @return loaded objects by id; null if they could not be loaded
+     */
+    Map<Integer, T> loadReferences(ConnectionSource connectionSource, Collection<Integer> ids) {
+        ConnectionSource source = connectionSource.getLazyLoadSource();
+        try(OperationTimer timer = metrics.start(Operation.FOREIGN_KEY_LOAD, source);
+            Connection conn = timer.connected(source.connect())) {
+            return loadByIds(conn, ids, loadContext(source), timer);
+        } catch (SQLException | RuntimeException throwables) {
+            metrics.failed(Operation.FOREIGN_KEY_LOAD);
+            logger.error("Could not load references to " + tableName, throwables);
+        }
+        return null;
+    }
+
+    /**
+     * Maps every row of a result set, then loads the referenced objects of all rows with one query per foreign key
+     * @param conn connection used to load referenced objects
+     * @param rs result set to map
+     * @param sql statement that produced the result set
+     * @param context objects already loaded during this read
+     * @return objects in row order
+     * @throws SQLException if a row cannot be read
+     */
+    List<T> mapRows(Connection conn, ResultSet rs, String sql, LoadContext context) throws SQLException {
+        return mapRows(conn, rs, sql, context, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Maps up to limit rows of a result set, then loads the referenced objects of those rows with one query per foreign key
+     * @param conn connection used to load referenced objects
+     * @param rs result set to map
+     * @param sql statement that produced the result set
+     * @param context objects already loaded during this read
+     * @param limit maximum number of rows to map
+     * @return objects in row order; fewer than limit once the result set is exhausted
+     * @throws SQLException if a row cannot be read
+     */
+    private List<T> mapRows(Connection conn, ResultSet rs, String sql, LoadContext context, int limit) throws SQLException {
+        return mapRows(conn, rs, sql, context, limit, null);
+    }
+
+    /**
+     * Maps up to limit rows of a result set, then loads the referenced objects of those rows with one query per foreign key
+     * @param conn connection used to load referenced objects
+     * @param rs result set to map
+     * @param sql statement that produced the result set
+     * @param context objects already loaded during this read
+     * @param limit maximum number of rows to map
+     * @param states receives the column values of each newly mapped row by id, or null
+     * @return objects in row order; fewer than limit once the result set is exhausted
+     * @throws SQLException if a row cannot be read
+     */
+    private List<T> mapRows(Connection conn, ResultSet rs, String sql, LoadContext context, int limit, Map<Integer, Object[]> states) throws SQLException {
+        RowDecoder decoder = rowDecoder(sql, rs);
+        List<T> objects = new ArrayList<>();
+        List<T> mapped = new ArrayList<>();
+        List<Integer[]> references = new ArrayList<>();
+        while(objects.size() < limit && rs.next()) {
+            int id = decoder.readId(rs);
+            T object = context.get(daoClass, id);
+            if(object == null) {
+                Integer[] refs = new Integer[descriptor.getForeignKeys().size()];
+                if(states != null) {
+                    Object[] state = decoder.readState(rs);
+                    object = hydrate(id, state, refs);
+                    states.put(id, state);
+                } else {
+                    object = decode(id, decoder, rs, refs);
+                }
+                context.put(daoClass, id, object);
+                mapped.add(object);
+                references.add(refs);
+            }
+            objects.add(object);
+        }
+        resolveForeignKeys(conn, mapped, references, context);
+        return objects;
+    }
+
+    /**
+     * Gets the row decoder for a statement, resolving its column positions from the result set metadata the first time
+     * @param sql statement that produced the result set
+     * @param rs result set of the statement
+     * @return row decoder
+     * @throws SQLException if the metadata cannot be read
+     */
+    private RowDecoder rowDecoder(String sql, ResultSet rs) throws SQLException {
+        RowDecoder decoder = rowDecoders.get(sql);
+        if(decoder == null) {
+            decoder = new RowDecoder(descriptor, rs.getMetaData());
+            if(rowDecoders.size() < MAX_ROW_DECODERS) {
+                rowDecoders.put(sql, decoder);
+            }
+        }
+        return decoder;
+    }
+
+    /**
+     * Builds a new object straight from the current row of a result set
+     * Foreign key ids are collected rather than resolved
+     * @param id primary key
+     * @param decoder decoder of the statement
+     * @param rs result set positioned on the row
+     * @param refs receives the referenced id of each foreign key, or null
+     * @return object built from the row
+     * @throws SQLException if a column cannot be read
+     */
+    private T decode(int id, RowDecoder decoder, ResultSet rs, Integer[] refs) throws SQLException {
+        T object = descriptor.newInstance();
+        EntityDescriptor.setId(object, id);
+        decoder.readInto(rs, object, refs);
+        if(dirtyTracking) {
+            List<ColumnDescriptor> columns = descriptor.getColumns();
+            Object[] loaded = new Object[columns.size()];
+            int fk = 0;
+            for(int i = 0; i < loaded.length; i++) {
+                ColumnDescriptor column = columns.get(i);
+                loaded[i] = column.isForeignKey() ? refs[fk++] : column.getBindValue(object);
+            }
+            ((BaseClass) object).loadedState = loaded;
+        }
+        return object;
+    }
+
+    /**
+     * Builds a new object from the column values of a row
+     * Foreign key ids are collected rather than resolved
+     * @param id primary key
+     * @param state column values in table order; foreign keys as referenced ids
+     * @param refs receives the referenced id of each foreign key, or null
+     * @return object built from the row
+     */
+    private T hydrate(int id, Object[] state, Integer[] refs) {
+        T object = descriptor.newInstance();
+        EntityDescriptor.setId(object, id);
+        List<ColumnDescriptor> columns = descriptor.getColumns();
+        Object[] loaded = dirtyTracking ? new Object[columns.size()] : null;
+        int fk = 0;
+        for(int i = 0; i < columns.size(); i++) {
+            ColumnDescriptor column = columns.get(i);
+            if(column.isForeignKey()) {
+                refs[fk++] = (Integer) state[i];
+                if(loaded != null) {
+                    loaded[i] = state[i];
+                }
+            } else {
+                column.set(object, state[i]);
+                if(loaded != null) {
+                    loaded[i] = column.getBindValue(object);
+                }
+            }
+        }
+        if(loaded != null) {
+            ((BaseClass) object).loadedState = loaded;
+        }
+        return object;
+    }
+
+    /**
+     * Loads the objects referenced by the foreign keys of the mapped objects and sets them on the fields
+     * Each foreign key is loaded with a single query through the dao registered for the referenced class
+     * LazyReference fields are given a reference that loads on first access instead
+     * @param conn connection used to load referenced objects
+     * @param mapped objects whose references are resolved
+     * @param references referenced ids of each mapped object, in foreign key order
+     * @param context objects already loaded during this read
+     * @throws SQLException if a referenced table cannot be read
+     */
+    private void resolveForeignKeys(Connection conn, List<T> mapped, List<Integer[]> references, LoadContext context) throws SQLException {
+        List<ColumnDescriptor> foreignKeys = descriptor.getForeignKeys();
+        for(int k = 0; k < foreignKeys.size(); k++) {
+            ColumnDescriptor column = foreignKeys.get(k);
+            if(column.isLazy()) {
+                LazyLoader<?> loader = context.lazyLoader(column.getRefClass().asSubclass(BaseClass.class));
+                for(int i = 0; i < mapped.size(); i++) {
+                    Integer ref = references.get(i)[k];
+                    column.set(mapped.get(i), ref == null ? null : loader.reference(ref));
+                }
+                continue;
+            }
+            Dao<?> refDao = DaoManager.getDao(column.getRefClass());
+            if(refDao == null) {
+                logger.warn("No dao registered for " + column.getRefClass().getName());
+                continue;
+            }
+            Set<Integer> ids = new HashSet<>();
+            for(Integer[] refs : references) {
+                if(refs[k] != null) {
+                    ids.add(refs[k]);
+                }
+            }
+            if(ids.isEmpty()) {
+                continue;
+            }
+            Map<Integer, ?> loaded;
+            try (OperationTimer timer = refDao.metrics.start(Operation.FOREIGN_KEY_LOAD)) {
+                loaded = refDao.loadByIds(conn, ids, context, timer);
+            } catch (SQLException | RuntimeException e) {
+                refDao.metrics.failed(Operation.FOREIGN_KEY_LOAD);
+                throw e;
+            }
+            for(int i = 0; i < mapped.size(); i++) {
+                Integer ref = references.get(i)[k];
+                if(ref != null) {
+                    column.set(mapped.get(i), loaded.get(ref));
+                }
+            }
+        }
+    }
+
+    /**
+     * Encodes the position of the last row of a page as an opaque token
+     * @param id id of the last row
+     * @param value value of the ordering column in the last row, or null when ordering by id
+     * @return continuation token
+     */
+    private static String encodePageToken(int id, Object value) {
+        String key = value == null ? String.valueOf(id) : id + ":" + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a continuation token
+     * @param token token produced by encodePageToken
+     * @return the id, followed by the ordering column value if there is one
+     */
+    private static String[] decodePageToken(String token) {
+        String key = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        return key.split(":", 2);
+    }
+
+    /**
+     * Drops a written row from the cache, if the entity is cacheable
+     * Inside a transaction the row is dropped again when the transaction completes
+     * @param connectionSource instance of the database connection
+     * @param id primary key of the written row
+     */
+    private void invalidate(ConnectionSource connectionSource, int id) {
+        if(cache != null) {
+            cache.invalidate(id);
+            connectionSource.afterCompletion(() -> cache.invalidate(id));
+        }
+    }
+
+    /**
+     * Clears the caches of entities that reference this one, since deletes cascade to their rows
+     * @param connectionSource instance of the database connection
+     */
+    private void invalidateReferencingCaches(ConnectionSource connectionSource) {
+        for(Dao<?> dao : DaoManager.getDaoList()) {
+            if(dao.getReferencedClasses().contains(daoClass)) {
+                dao.clearCache();
+                connectionSource.afterCompletion(dao::clearCache);
+            }
+        }
+    }
+
+    /**
+     * Gets the load context for a read; a Session shares its identity map, otherwise each read gets a fresh one
+     * @param connectionSource instance of the database connection
+     * @return load context for the read
+     */
+    private static LoadContext loadContext(ConnectionSource connectionSource) {
+        LoadContext context = connectionSource.getLoadContext();
+        return context == null ? new LoadContext(connectionSource) : context;
+    }
+
+    /**
+     * Closes a statement and its connection, logging rather than throwing on failure
+     * @param ps statement to close, may be null
+     * @param conn connection to close, may be null
+     */
+    private static void closeQuietly(PreparedStatement ps, Connection conn) {
+        try {
+            if(ps != null) {
+                ps.close();
+            }
+        } catch (SQLException e) {
+            logger.warn("Could not close statement.", e);
+        }
+        try {
+            if(conn != null) {
+                conn.close();
+            }
+        } catch (SQLException e) {
+            logger.warn("Could not close connection.", e);
+        }
+    }
+
+    /**
+     * Checks that a column belongs to the table
+     * @param columnName column name, or "id"
+     * @return the column name
+     * @throws IllegalArgumentException if the table has no such column
+     */
+    String checkColumn(String columnName) {
+        if(!"id".equals(columnName) && descriptor.getColumn(columnName) == null) {
+            throw new IllegalArgumentException(tableName + " has no column " + columnName);
+        }
+        return columnName;
+    }
+
+    /**
+     * Gets the mapping metadata of the class the dao is holding
+     * @return entity descriptor
+     */
+    EntityDescriptor<T> getDescriptor() {
+        return descriptor;
+    }
+
+    /**
+     * Gets the select list naming the id and every column
+     * @return comma separated column names, id first
+     */
+    String getSelectColumns() {
+        return selectColumns;
+    }
+
+    /**
+     * Gets the CREATE TABLE statement for the model
+     * @return CREATE TABLE IF NOT EXISTS statement
+     */
+    String getCreateTableSql() {
+        return createTableSql;
+    }
+
+    /**
+     * Gets the CREATE INDEX statements for the model
+     * @return CREATE INDEX IF NOT EXISTS statements, declared indexes first and foreign key indexes last
+     */
+    List<String> getCreateIndexSql() {
+        return createIndexSql;
+    }
+
+    /**
+     * Gets the classes referenced by the foreign keys of the model
+     * @return referenced classes in column order
+     */
+    List<Class<?>> getReferencedClasses() {
+        List<Class<?>> refs = new ArrayList<>();
+        for(ColumnDescriptor column : descriptor.getForeignKeys()) {
+            refs.add(column.getRefClass());
+        }
+        return refs;
+    }
+
+    /**
+     * Records that the table exists so inserts skip creating it
+     */
+    void markTableEnsured() {
+        tableEnsured = true;
+    }
+
+    /**
+     * Gets the number of rows sent per batch by insertAll
+     * @return batch size
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Sets the number of rows sent per batch by insertAll
+     * @param batchSize batch size
+     */
+    public void setBatchSize(int batchSize) {
+        if(batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Gets the number of rows fetched per round-trip by stream and forEach
+     * @return fetch size
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Sets the number of rows fetched per round-trip by stream and forEach
+     * @param fetchSize fetch size
+     */
+    public void setFetchSize(int fetchSize) {
+        if(fetchSize < 1) {
+            throw new IllegalArgumentException("Fetch size must be at least 1");
+        }
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Checks if updates only write the columns that changed since an object was loaded
+     * @return true if dirty tracking is on
+     */
+    public boolean isDirtyTracking() {
+        return dirtyTracking;
+    }
+
+    /**
+     * Turns dirty tracking on or off
+     * When on, objects remember their column values when they are loaded or inserted, and updateById only writes the columns that changed
+     * @param dirtyTracking true to turn dirty tracking on
+     */
+    public void setDirtyTracking(boolean dirtyTracking) {
+        this.dirtyTracking = dirtyTracking;
+    }
+
+    /**
+     * Gets the hit, miss and eviction counters of the entity cache
+     * @return cache statistics, or null if the entity is not Cacheable
+     */
+    public CacheStatistics getCacheStatistics() {
+        return cache == null ? null : cache.getStatistics();
+    }
+
+    /**
+     * Drops every row from the entity cache
+     */
+    public void clearCache() {
+        if(cache != null) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Gets a point-in-time copy of the metrics of every operation of this dao
+     * @return metrics by operation
+     */
+    public Map<Operation, OperationStatistics> getStatistics() {
+        return metrics.snapshot();
+    }
+
+    /**
+     * Clears the metrics of this dao
+     */
+    public void resetStatistics() {
+        metrics.reset();
+    }
+
+    /**
+     * Gets the metrics of this dao as a JMX MXBean
+     * @return metrics MXBean
+     */
+    DaoMetricsMXBean getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Get's the class the dao is holding
+     * @return class the doa is holding
+     */
+    public Class<T> getDaoClass() {
+        return daoClass;
     }
 
     /**
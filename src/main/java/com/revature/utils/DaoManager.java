@@ -3,9 +3,22 @@ package com.revature.utils;
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Stream;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class DaoManager {
     /**
@@ -14,34 +27,258 @@ public class DaoManager {
     private static Logger logger = LogManager.getLogger(DaoManager.class);
 
     /**
-     * Holds list of all Daos that are instantiated
+     * Holds list of all Daos that are instantiated, in the order they were added
      */
-    private static List<Dao<?>> daoList = new ArrayList<>();
+    private static final List<Dao<?>> daoList = new CopyOnWriteArrayList<>();
+    /**
+     * Registered Daos by entity class
+     */
+    private static final Map<Class<?>, Dao<?>> daosByClass = new ConcurrentHashMap<>();
+    /**
+     * Registered Daos by table name
+     */
+    private static final Map<String, Dao<?>> daosByTable = new ConcurrentHashMap<>();
+    /**
+     * Whether Dao metrics are registered with the platform MBean server
+     */
+    private static boolean mbeansRegistered = false;
 
     /**
      * Varargs for adding an unknown number of Daos to the daoList
-     * @param dao An instantiated Dao
+     * @param dao Instantiated Daos
      */
-
     public static void addDao(Dao<?> ...dao) {
-        daoList = new ArrayList<>();
-        Stream.of(dao).forEach((d) -> daoList.add(d));
+        for(Dao<?> d : dao) {
+            addDao(d);
+        }
     }
 
     /**
      * Adds a single dao to the daoList
+     * A Dao added for a class that is already registered replaces the previous one
      * @param dao An instantiated Dao
      */
-    public static void addDao(Dao<?> dao) {
-        daoList.add(dao);
+    public static synchronized void addDao(Dao<?> dao) {
+        Dao<?> previous = daosByClass.put(dao.getDaoClass(), dao);
+        if(previous != null) {
+            daosByTable.remove(previous.getTableName(), previous);
+            daoList.set(daoList.indexOf(previous), dao);
+            if(mbeansRegistered) {
+                unregisterMBean(previous);
+            }
+        } else {
+            daoList.add(dao);
+        }
+        daosByTable.put(dao.getTableName(), dao);
+        if(mbeansRegistered) {
+            registerMBean(dao);
+        }
+    }
+
+    /**
+     * Removes the dao registered for a class
+     * @param clazz entity class
+     * @return true if a dao was registered for the class
+     */
+    public static synchronized boolean removeDao(Class<?> clazz) {
+        Dao<?> dao = daosByClass.remove(clazz);
+        if(dao == null) {
+            return false;
+        }
+        daosByTable.remove(dao.getTableName(), dao);
+        daoList.remove(dao);
+        if(mbeansRegistered) {
+            unregisterMBean(dao);
+        }
+        return true;
+    }
+
+    /**
+     * Gets the dao registered for an entity class
+     * @param clazz entity class
+     * @param <T> entity type
+     * @return the dao, or null if none is registered
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Dao<T> getDao(Class<T> clazz) {
+        return (Dao<T>) daosByClass.get(clazz);
+    }
+
+    /**
+     * Gets the dao registered for a table
+     * @param tableName table name
+     * @return the dao, or null if none is registered
+     */
+    public static Dao<?> getDao(String tableName) {
+        return daosByTable.get(tableName);
     }
 
     /**
      * Returns the daoList
-     * @return List of all Daos
+     * @return read-only list of all Daos, in the order they were added
      */
     public static List<Dao<?>> getDaoList() {
-        return daoList;
+        return Collections.unmodifiableList(daoList);
+    }
+
+    /**
+     * Gets a point-in-time copy of the metrics of every registered dao
+     * @return metrics by operation, by table name
+     */
+    public static Map<String, Map<Operation, OperationStatistics>> getStatistics() {
+        Map<String, Map<Operation, OperationStatistics>> statistics = new LinkedHashMap<>();
+        for(Dao<?> dao : daoList) {
+            statistics.put(dao.getTableName(), dao.getStatistics());
+        }
+        return statistics;
+    }
+
+    /**
+     * Registers the metrics of every registered dao with the platform MBean server, as
+     * com.revature.ormate:type=Dao,name=&lt;table name&gt;; daos added later are registered as they are added
+     */
+    public static synchronized void registerMBeans() {
+        if(mbeansRegistered) {
+            return;
+        }
+        mbeansRegistered = true;
+        daoList.forEach(DaoManager::registerMBean);
     }
 
+    /**
+     * Removes the metrics of every registered dao from the platform MBean server
+     */
+    public static synchronized void unregisterMBeans() {
+        if(!mbeansRegistered) {
+            return;
+        }
+        mbeansRegistered = false;
+        daoList.forEach(DaoManager::unregisterMBean);
+    }
+
+    /**
+     * Registers the metrics of a dao with the platform MBean server, replacing any registered under the same table name
+     * @param dao dao whose metrics are registered
+     */
+    private static void registerMBean(Dao<?> dao) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = mbeanName(dao);
+            if(server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(dao.getMetrics(), name);
+        } catch (JMException e) {
+            logger.warn("Could not register metrics of " + dao.getTableName(), e);
+        }
+    }
+
+    /**
+     * Removes the metrics of a dao from the platform MBean server
+     * @param dao dao whose metrics are removed
+     */
+    private static void unregisterMBean(Dao<?> dao) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = mbeanName(dao);
+            if(server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            logger.warn("Could not unregister metrics of " + dao.getTableName(), e);
+        }
+    }
+
+    /**
+     * Builds the MBean name of a dao's metrics
+     * @param dao dao whose metrics are named
+     * @return object name
+     * @throws JMException if the table name is not a valid name value
+     */
+    private static ObjectName mbeanName(Dao<?> dao) throws JMException {
+        return new ObjectName("com.revature.ormate:type=Dao,name=" + dao.getTableName());
+    }
+
+    /**
+     * Creates the tables and indexes of all registered Daos in one transaction on a single connection.
+     * Tables are created in foreign key order so referenced tables exist first, and each Dao
+     * remembers that its table exists so inserts no longer try to create it; inside a Transaction that happens only once it commits.
+     * @param connectionSource instance of the database connection
+     * @return true if every table was created or already existed; false otherwise
+     */
+    public static boolean initializeSchema(ConnectionSource connectionSource) {
+        List<Dao<?>> ordered = getDaosInDependencyOrder();
+        boolean ownTransaction = !connectionSource.isTransactional();
+        try (Connection conn = connectionSource.connect()) {
+            if(ownTransaction) {
+                conn.setAutoCommit(false);
+            }
+            try (Statement statement = conn.createStatement()) {
+                for(Dao<?> dao : ordered) {
+                    statement.execute(dao.getCreateTableSql());
+                }
+                for(Dao<?> dao : ordered) {
+                    for(String sql : dao.getCreateIndexSql()) {
+                        statement.execute(sql);
+                    }
+                }
+                if(ownTransaction) {
+                    conn.commit();
+                }
+            } catch (SQLException e) {
+                if(ownTransaction) {
+                    conn.rollback();
+                }
+                throw e;
+            }
+        } catch (SQLException e) {
+            logger.error("Could not initialize schema.", e);
+            return false;
+        }
+        connectionSource.afterCommit(() -> ordered.forEach(Dao::markTableEnsured));
+        logger.info("Initialized schema for " + ordered.size() + " tables.");
+        return true;
+    }
+
+    /**
+     * Orders the registered Daos so every Dao comes after the Daos its foreign keys reference
+     * @return Daos in dependency order
+     */
+    static List<Dao<?>> getDaosInDependencyOrder() {
+        List<Dao<?>> ordered = new ArrayList<>();
+        Set<Class<?>> visited = new HashSet<>();
+        Set<Class<?>> visiting = new HashSet<>();
+        for(Dao<?> dao : daoList) {
+            visit(dao, ordered, visited, visiting);
+        }
+        return ordered;
+    }
+
+    /**
+     * Depth first visit of a Dao's foreign key references, appending the Dao after its references
+     * References to the Dao's own class, such as a parent in a tree, are not a cycle and are skipped
+     * @param dao Dao being visited
+     * @param ordered Daos in dependency order so far
+     * @param visited classes already ordered
+     * @param visiting classes on the current path, used to detect cycles
+     */
+    private static void visit(Dao<?> dao, List<Dao<?>> ordered, Set<Class<?>> visited, Set<Class<?>> visiting) {
+        Class<?> clazz = dao.getDaoClass();
+        if(visited.contains(clazz)) {
+            return;
+        }
+        if(!visiting.add(clazz)) {
+            logger.warn("Foreign key cycle detected at " + dao.getTableName());
+            return;
+        }
+        for(Class<?> refClass : dao.getReferencedClasses()) {
+            Dao<?> ref = refClass.equals(clazz) ? null : daosByClass.get(refClass);
+            if(ref != null) {
+                visit(ref, ordered, visited, visiting);
+            }
+        }
+        visiting.remove(clazz);
+        visited.add(clazz);
+        ordered.add(dao);
+    }
 }
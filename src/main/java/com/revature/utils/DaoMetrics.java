@@ -0,0 +1,145 @@
+package com.revature.utils;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Call counts, error counts, row counts and phase latencies of every operation of one Dao.
+ * Recording is lock-free so concurrent calls do not contend on the metrics.
+ */
+final class DaoMetrics implements DaoMetricsMXBean {
+    /**
+     * Table of the Dao
+     */
+    private final String tableName;
+    /**
+     * Metrics per operation; filled in the constructor and never modified afterwards
+     */
+    private final Map<Operation, OperationMetrics> operations = new EnumMap<>(Operation.class);
+
+    /**
+     * DaoMetrics constructor
+     * @param tableName table of the Dao
+     */
+    DaoMetrics(String tableName) {
+        this.tableName = tableName;
+        for(Operation operation : Operation.values()) {
+            operations.put(operation, new OperationMetrics());
+        }
+    }
+
+    /**
+     * Starts timing a call
+     * @param operation operation being called
+     * @return timer that records the call when closed
+     */
+    OperationTimer start(Operation operation) {
+        return new OperationTimer(operations.get(operation), operation, tableName, null);
+    }
+
+    /**
+     * Starts timing a call, recording it in the slow query log of the connection source if it is slow
+     * @param operation operation being called
+     * @param connectionSource source the call runs through
+     * @return timer that records the call when closed
+     */
+    OperationTimer start(Operation operation, ConnectionSource connectionSource) {
+        return new OperationTimer(operations.get(operation), operation, tableName, connectionSource.getSlowQueryLog());
+    }
+
+    /**
+     * Counts a failed call
+     * @param operation operation that failed
+     */
+    void failed(Operation operation) {
+        operations.get(operation).errors.increment();
+    }
+
+    /**
+     * Takes a point-in-time copy of the metrics of every operation
+     * @return metrics by operation, in declaration order
+     */
+    Map<Operation, OperationStatistics> snapshot() {
+        Map<Operation, OperationStatistics> snapshot = new EnumMap<>(Operation.class);
+        operations.forEach((operation, metrics) -> snapshot.put(operation, metrics.snapshot(operation)));
+        return snapshot;
+    }
+
+    @Override
+    public String getTableName() {
+        return tableName;
+    }
+
+    @Override
+    public long getCalls() {
+        return operations.values().stream().mapToLong((m) -> m.calls.sum()).sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return operations.values().stream().mapToLong((m) -> m.errors.sum()).sum();
+    }
+
+    @Override
+    public long getRows() {
+        return operations.values().stream().mapToLong((m) -> m.rows.sum()).sum();
+    }
+
+    @Override
+    public Map<String, OperationStatistics> getOperations() {
+        Map<String, OperationStatistics> called = new LinkedHashMap<>();
+        operations.forEach((operation, metrics) -> {
+            if(metrics.calls.sum() > 0) {
+                called.put(operation.name(), metrics.snapshot(operation));
+            }
+        });
+        return called;
+    }
+
+    @Override
+    public void reset() {
+        operations.values().forEach(OperationMetrics::reset);
+    }
+
+    /**
+     * Counters and histograms of one operation
+     */
+    static final class OperationMetrics {
+        /**
+         * Calls, failed calls, and rows mapped or written
+         */
+        final LongAdder calls = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder rows = new LongAdder();
+        /**
+         * Latency of each phase
+         */
+        final LatencyHistogram acquire = new LatencyHistogram();
+        final LatencyHistogram execute = new LatencyHistogram();
+        final LatencyHistogram mapping = new LatencyHistogram();
+
+        /**
+         * Clears the counters and histograms
+         */
+        void reset() {
+            calls.reset();
+            errors.reset();
+            rows.reset();
+            acquire.reset();
+            execute.reset();
+            mapping.reset();
+        }
+
+        /**
+         * Takes a point-in-time copy of the counters and histograms
+         * @param operation operation the metrics belong to
+         * @return the copy
+         */
+        OperationStatistics snapshot(Operation operation) {
+            return new OperationStatistics(operation, calls.sum(), errors.sum(), rows.sum(),
+                    acquire.snapshot(), execute.snapshot(), mapping.snapshot());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.revature.utils;
+
+import java.util.Map;
+
+/**
+ * JMX view of the metrics of one Dao, registered by DaoManager.registerMBeans()
+ * under com.revature.ormate:type=Dao,name=&lt;table name&gt;
+ */
+public interface DaoMetricsMXBean {
+    /**
+     * Gets the table the Dao reads and writes
+     * @return table name
+     */
+    String getTableName();
+
+    /**
+     * Gets the number of calls across all operations
+     * @return call count
+     */
+    long getCalls();
+
+    /**
+     * Gets the number of failed calls across all operations
+     * @return error count
+     */
+    long getErrors();
+
+    /**
+     * Gets the number of rows mapped or written across all operations
+     * @return row count
+     */
+    long getRows();
+
+    /**
+     * Gets the metrics of every operation that has been called
+     * @return metrics by operation name
+     */
+    Map<String, OperationStatistics> getOperations();
+
+    /**
+     * Clears all metrics
+     */
+    void reset();
+}
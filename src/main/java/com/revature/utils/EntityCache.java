@@ -0,0 +1,204 @@
+package com.revature.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide cache of the column values of one entity's rows, keyed by id.
+ * Rows are kept in the values read from the database rather than as objects, so every hit builds a new,
+ * unshared object. The cache is split into independently locked LRU segments so concurrent readers rarely contend.
+ */
+final class EntityCache {
+    /**
+     * Upper bound on the number of independently locked segments
+     */
+    private static final int MAX_SEGMENTS = 16;
+    /**
+     * Smallest segment worth splitting off
+     */
+    private static final int MIN_SEGMENT_SIZE = 8;
+
+    /**
+     * LRU segments, selected by id; the length is a power of two
+     */
+    private final Segment[] segments;
+    /**
+     * Time to live in nanoseconds; 0 means rows never expire
+     */
+    private final long ttlNanos;
+    /**
+     * Incremented on every invalidation; loads that started before an invalidation are not cached
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Statistics counters
+     */
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * EntityCache constructor
+     * @param maxSize maximum number of rows
+     * @param ttlSeconds time to live in seconds; 0 means rows never expire
+     */
+    EntityCache(int maxSize, long ttlSeconds) {
+        int count = 1;
+        while(count < MAX_SEGMENTS && count * 2 * MIN_SEGMENT_SIZE <= maxSize) {
+            count *= 2;
+        }
+        segments = new Segment[count];
+        int perSegment = Math.max(1, (maxSize + count - 1) / count);
+        for(int i = 0; i < count; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
+
+    /**
+     * Gets the cached column values of a row
+     * @param id primary key
+     * @return column values, or null on a miss
+     */
+    Object[] get(int id) {
+        Segment segment = segmentFor(id);
+        CachedRow entry;
+        synchronized (segment) {
+            entry = segment.get(id);
+            if(entry != null && isExpired(entry)) {
+                segment.remove(id);
+                evictions.increment();
+                entry = null;
+            }
+        }
+        if(entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.state;
+    }
+
+    /**
+     * Gets the stamp to pass to put() for a load that is about to start
+     * @return current invalidation generation
+     */
+    long stamp() {
+        return generation.get();
+    }
+
+    /**
+     * Caches the column values of a row, unless a write happened since the load started
+     * @param id primary key
+     * @param state column values in table order
+     * @param stamp value of stamp() taken before the row was read
+     */
+    void put(int id, Object[] state, long stamp) {
+        Segment segment = segmentFor(id);
+        synchronized (segment) {
+            if(generation.get() == stamp) {
+                segment.put(id, new CachedRow(state, ttlNanos == 0 ? 0 : System.nanoTime() + ttlNanos));
+            }
+        }
+    }
+
+    /**
+     * Drops a row that has been written
+     * @param id primary key
+     */
+    void invalidate(int id) {
+        Segment segment = segmentFor(id);
+        synchronized (segment) {
+            generation.incrementAndGet();
+            if(segment.remove(id) != null) {
+                invalidations.increment();
+            }
+        }
+    }
+
+    /**
+     * Drops every row
+     */
+    void clear() {
+        generation.incrementAndGet();
+        for(Segment segment : segments) {
+            synchronized (segment) {
+                invalidations.add(segment.size());
+                segment.clear();
+            }
+        }
+    }
+
+    /**
+     * Takes a snapshot of the counters
+     * @return cache statistics
+     */
+    CacheStatistics getStatistics() {
+        long size = 0;
+        for(Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return new CacheStatistics(hits.sum(), misses.sum(), evictions.sum(), invalidations.sum(), size);
+    }
+
+    /**
+     * Selects the segment holding an id
+     * @param id primary key
+     * @return the segment
+     */
+    private Segment segmentFor(int id) {
+        int h = id * 0x9E3779B9;
+        return segments[(h ^ (h >>> 16)) & (segments.length - 1)];
+    }
+
+    /**
+     * Checks if an entry has outlived the time to live
+     * @param entry entry to check
+     * @return true if the entry has expired
+     */
+    private boolean isExpired(CachedRow entry) {
+        return entry.expiresAt != 0 && System.nanoTime() - entry.expiresAt > 0;
+    }
+
+    /**
+     * Cached column values and their expiry time
+     */
+    private static final class CachedRow {
+        private final Object[] state;
+        private final long expiresAt;
+
+        private CachedRow(Object[] state, long expiresAt) {
+            this.state = state;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Access-ordered map that evicts its least recently used entry once it is full
+     */
+    private final class Segment extends LinkedHashMap<Integer, CachedRow> {
+        private static final long serialVersionUID = 1L;
+        private final int maxSize;
+
+        private Segment(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, CachedRow> eldest) {
+            if(size() > maxSize) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
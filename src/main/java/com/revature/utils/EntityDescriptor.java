@@ -0,0 +1,205 @@
+package com.revature.utils;
+
+import com.revature.annotations.Column;
+import com.revature.annotations.Entity;
+import com.revature.annotations.ForeignKey;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable mapping metadata for an entity class, built once per Dao.
+ * Columns are held in the order they appear in the table, after the id column.
+ */
+final class EntityDescriptor<T> {
+    /**
+     * Primary key field shared by all entities
+     */
+    private static final Field ID_FIELD;
+
+    static {
+        try {
+            ID_FIELD = BaseClass.class.getDeclaredField("id");
+            ID_FIELD.setAccessible(true);
+        } catch (NoSuchFieldException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Class of the entity
+     */
+    private final Class<T> entityClass;
+    /**
+     * Table the entity is stored in
+     */
+    private final String tableName;
+    /**
+     * No-arg constructor of the entity
+     */
+    private final Constructor<T> constructor;
+    /**
+     * Persisted columns, excluding the id
+     */
+    private final List<ColumnDescriptor> columns;
+    /**
+     * Foreign key columns, a subset of columns
+     */
+    private final List<ColumnDescriptor> foreignKeys;
+    /**
+     * Columns by column name
+     */
+    private final Map<String, ColumnDescriptor> columnsByName;
+
+    /**
+     * EntityDescriptor constructor
+     * Reads the Entity annotation for the table name and the Column and ForeignKey annotations of each declared field
+     * @param entityClass class of the entity
+     */
+    EntityDescriptor(Class<T> entityClass) {
+        this.entityClass = entityClass;
+        this.tableName = tableNameOf(entityClass);
+        try {
+            this.constructor = entityClass.getDeclaredConstructor();
+            this.constructor.setAccessible(true);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException(entityClass.getName() + " needs a no-arg constructor", e);
+        }
+
+        List<ColumnDescriptor> cols = new ArrayList<>();
+        List<ColumnDescriptor> fks = new ArrayList<>();
+        Map<String, ColumnDescriptor> byName = new HashMap<>();
+        for(Field field : entityClass.getDeclaredFields()) {
+            Column column = field.getAnnotation(Column.class);
+            ForeignKey fk = field.getAnnotation(ForeignKey.class);
+            if(column != null) {
+                cols.add(new ColumnDescriptor(column.columnName(), sqlTypeOf(field), field, null));
+            } else if(fk != null) {
+                ColumnDescriptor c = new ColumnDescriptor(fk.colName(), "int", field, fk.refClass());
+                cols.add(c);
+                fks.add(c);
+            }
+        }
+        for(ColumnDescriptor c : cols) {
+            byName.put(c.getColumnName(), c);
+        }
+        this.columns = Collections.unmodifiableList(cols);
+        this.columnsByName = Collections.unmodifiableMap(byName);
+        this.foreignKeys = Collections.unmodifiableList(fks);
+    }
+
+    /**
+     * Gets the entity class
+     * @return entity class
+     */
+    Class<T> getEntityClass() {
+        return entityClass;
+    }
+
+    /**
+     * Gets the table name
+     * @return table name
+     */
+    String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * Gets the persisted columns, excluding the id
+     * @return columns in table order
+     */
+    List<ColumnDescriptor> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Gets the foreign key columns
+     * @return foreign key columns in table order
+     */
+    List<ColumnDescriptor> getForeignKeys() {
+        return foreignKeys;
+    }
+
+    /**
+     * Finds a column by name
+     * @param columnName name of the column
+     * @return the column, or null if the entity has no such column
+     */
+    ColumnDescriptor getColumn(String columnName) {
+        return columnsByName.get(columnName);
+    }
+
+    /**
+     * Creates an empty instance of the entity
+     * @return new entity
+     */
+    T newInstance() {
+        try {
+            return constructor.newInstance();
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Could not instantiate " + entityClass.getName(), e);
+        }
+    }
+
+    /**
+     * Reads the id of an entity
+     * @param entity entity to read
+     * @return primary key
+     */
+    static int getId(Object entity) {
+        try {
+            return ID_FIELD.getInt(entity);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Could not read id", e);
+        }
+    }
+
+    /**
+     * Writes the id of an entity
+     * @param entity entity to write
+     * @param id primary key
+     */
+    static void setId(Object entity, int id) {
+        try {
+            ID_FIELD.setInt(entity, id);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Could not write id", e);
+        }
+    }
+
+    /**
+     * Returns the table name from the Entity annotation
+     * @param clazz entity class
+     * @return String table name
+     */
+    static String tableNameOf(Class<?> clazz) {
+        Entity entity = clazz.getAnnotation(Entity.class);
+        return entity == null ? "" : entity.tableName();
+    }
+
+    /**
+     * Takes in a field and converts its type to its SQL datatype equivalent
+     * @param field field whose datatype needs to be parsed
+     * @return String of the SQL datatype name
+     */
+    private static String sqlTypeOf(Field field) {
+        String type = field.getGenericType().getTypeName().toLowerCase();
+        if(type.equals("byte") || type.equals("short")) {
+            return "int";
+        } else if (type.equals("long")) {
+            return "bigint";
+        } else if (type.equals("char") || type.equals("java.lang.string")) {
+            return "varchar";
+        } else if (type.equals("double")) {
+            return "float";
+        } else {
+            return type;
+        }
+    }
+}
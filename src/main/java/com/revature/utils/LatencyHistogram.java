@@ -0,0 +1,98 @@
+package com.revature.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with power-of-two microsecond buckets.
+ * Bucket 0 counts latencies under 1 microsecond and bucket i counts latencies from 2^(i-1) up to 2^i microseconds,
+ * so percentiles are accurate to within a factor of two, which is enough to tell a slow table from a fast one.
+ */
+final class LatencyHistogram {
+    /**
+     * Number of buckets; the last one also holds anything slower than about 18 minutes
+     */
+    static final int BUCKETS = 31;
+
+    /**
+     * Count per bucket
+     */
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    /**
+     * Number of recorded latencies
+     */
+    private final LongAdder count = new LongAdder();
+    /**
+     * Sum of recorded latencies in nanoseconds
+     */
+    private final LongAdder total = new LongAdder();
+    /**
+     * Largest recorded latency in nanoseconds
+     */
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records a latency
+     * @param nanos latency in nanoseconds
+     */
+    void record(long nanos) {
+        long micros = Math.max(nanos, 0) / 1000;
+        int bucket = Math.min(64 - Long.numberOfLeadingZeros(micros), BUCKETS - 1);
+        buckets.incrementAndGet(bucket);
+        count.increment();
+        total.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    /**
+     * Clears all recorded latencies
+     */
+    void reset() {
+        for(int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        total.reset();
+        max.reset();
+    }
+
+    /**
+     * Takes a point-in-time copy of the histogram
+     * @return snapshot of the recorded latencies
+     */
+    LatencySnapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long n = 0;
+        for(int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            n += counts[i];
+        }
+        long sum = total.sum();
+        long maxMicros = max.get() / 1000;
+        return new LatencySnapshot(n, n == 0 ? 0 : sum / n / 1000, Math.min(percentile(counts, n, 0.50), maxMicros),
+                Math.min(percentile(counts, n, 0.95), maxMicros), Math.min(percentile(counts, n, 0.99), maxMicros), maxMicros, counts);
+    }
+
+    /**
+     * Estimates a percentile as the upper bound of the bucket it falls in; callers cap it at the maximum
+     * @param counts count per bucket
+     * @param n total count
+     * @param fraction percentile as a fraction
+     * @return estimated latency in microseconds
+     */
+    private static long percentile(long[] counts, long n, double fraction) {
+        if(n == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(n * fraction);
+        long seen = 0;
+        for(int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if(seen >= rank) {
+                return 1L << i;
+            }
+        }
+        return 1L << (counts.length - 1);
+    }
+}
@@ -0,0 +1,112 @@
+package com.revature.utils;
+
+/**
+ * Point-in-time summary of the latencies of one phase of a Dao operation.
+ * Percentiles are bucket upper bounds, accurate to within a factor of two.
+ */
+public class LatencySnapshot {
+    /**
+     * Number of recorded latencies
+     */
+    private final long count;
+    /**
+     * Mean latency in microseconds
+     */
+    private final long meanMicros;
+    /**
+     * Percentiles in microseconds
+     */
+    private final long p50Micros;
+    private final long p95Micros;
+    private final long p99Micros;
+    /**
+     * Largest latency in microseconds
+     */
+    private final long maxMicros;
+    /**
+     * Count per power-of-two microsecond bucket
+     */
+    private final long[] buckets;
+
+    /**
+     * LatencySnapshot constructor
+     * @param count number of recorded latencies
+     * @param meanMicros mean latency
+     * @param p50Micros median latency
+     * @param p95Micros 95th percentile latency
+     * @param p99Micros 99th percentile latency
+     * @param maxMicros largest latency
+     * @param buckets count per bucket
+     */
+    LatencySnapshot(long count, long meanMicros, long p50Micros, long p95Micros, long p99Micros, long maxMicros, long[] buckets) {
+        this.count = count;
+        this.meanMicros = meanMicros;
+        this.p50Micros = p50Micros;
+        this.p95Micros = p95Micros;
+        this.p99Micros = p99Micros;
+        this.maxMicros = maxMicros;
+        this.buckets = buckets;
+    }
+
+    /**
+     * Gets the number of recorded latencies
+     * @return count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the mean latency
+     * @return mean in microseconds
+     */
+    public long getMeanMicros() {
+        return meanMicros;
+    }
+
+    /**
+     * Gets the median latency
+     * @return 50th percentile in microseconds
+     */
+    public long getP50Micros() {
+        return p50Micros;
+    }
+
+    /**
+     * Gets the 95th percentile latency
+     * @return 95th percentile in microseconds
+     */
+    public long getP95Micros() {
+        return p95Micros;
+    }
+
+    /**
+     * Gets the 99th percentile latency
+     * @return 99th percentile in microseconds
+     */
+    public long getP99Micros() {
+        return p99Micros;
+    }
+
+    /**
+     * Gets the largest latency
+     * @return maximum in microseconds
+     */
+    public long getMaxMicros() {
+        return maxMicros;
+    }
+
+    /**
+     * Gets the histogram; bucket 0 counts latencies under 1 microsecond and bucket i those under 2^i microseconds
+     * @return count per bucket
+     */
+    public long[] getBuckets() {
+        return buckets.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "LatencySnapshot{count=" + count + ", mean=" + meanMicros + "us, p50=" + p50Micros + "us, p95=" + p95Micros +
+                "us, p99=" + p99Micros + "us, max=" + maxMicros + "us}";
+    }
+}
@@ -0,0 +1,102 @@
+package com.revature.utils;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves the lazy references of one class created during one read, or one Session.
+ * References wait in a pending list; touching any of them loads all pending ids with a single query.
+ * @param <T> class of the referenced objects
+ */
+final class LazyLoader<T extends BaseClass> {
+    /**
+     * Logger
+     */
+    private static Logger logger = LogManager.getLogger(LazyLoader.class);
+
+    /**
+     * Class of the referenced objects
+     */
+    private final Class<T> refClass;
+    /**
+     * Source the references were read through
+     */
+    private final ConnectionSource source;
+    /**
+     * Objects already loaded by the read the references came from
+     */
+    private final LoadContext context;
+    /**
+     * References not loaded yet
+     */
+    private final List<LazyReference<T>> pending = new ArrayList<>();
+
+    /**
+     * LazyLoader constructor
+     * @param refClass class of the referenced objects
+     * @param source source the references were read through
+     * @param context objects already loaded by the read
+     */
+    LazyLoader(Class<T> refClass, ConnectionSource source, LoadContext context) {
+        this.refClass = refClass;
+        this.source = source;
+        this.context = context;
+    }
+
+    /**
+     * Creates a reference for a foreign key read from a row
+     * An object the read has already loaded is attached straight away
+     * @param id referenced id
+     * @return reference to the object
+     */
+    LazyReference<T> reference(int id) {
+        LazyReference<T> reference = new LazyReference<>(id, this);
+        T known = context.get(refClass, id);
+        if(known != null) {
+            reference.resolve(known);
+        } else {
+            synchronized (this) {
+                pending.add(reference);
+            }
+        }
+        return reference;
+    }
+
+    /**
+     * Loads the referenced objects of every pending reference in one query
+     * The batch is taken off the pending list first, so references created while it loads, such as a self-referencing
+     * parent of a loaded row, stay pending for the next access instead of being dropped
+     * If the load fails the references stay pending and the next access tries again
+     * @param touched reference whose object was asked for
+     */
+    synchronized void load(LazyReference<T> touched) {
+        if(touched.isLoaded()) {
+            return;
+        }
+        Dao<T> dao = DaoManager.getDao(refClass);
+        if(dao == null) {
+            logger.warn("No dao registered for " + refClass.getName());
+            return;
+        }
+        List<LazyReference<T>> batch = new ArrayList<>(pending);
+        pending.clear();
+        Set<Integer> ids = new HashSet<>();
+        for(LazyReference<T> reference : batch) {
+            ids.add(reference.getId());
+        }
+        Map<Integer, T> loaded = dao.loadReferences(source, ids);
+        if(loaded == null) {
+            pending.addAll(0, batch);
+            return;
+        }
+        for(LazyReference<T> reference : batch) {
+            reference.resolve(loaded.get(reference.getId()));
+        }
+    }
+}
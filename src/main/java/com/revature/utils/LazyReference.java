@@ -0,0 +1,117 @@
+package com.revature.utils;
+
+/**
+ * Holder for a ForeignKey field that is loaded on first access instead of with its owner.
+ * Declare the field as LazyReference&lt;Referenced&gt; to opt in; reads then store only the referenced id.
+ * The first call to get() loads the referenced object together with every other untouched reference
+ * of the same class from the same read, or the same Session, in one query.
+ * <pre>
+ *     &#64;ForeignKey(colName = "owner_id", refClass = User.class)
+ *     private LazyReference&lt;User&gt; owner;
+ *
+ *     task.setOwner(LazyReference.of(user));
+ *     User owner = task.getOwner().get();
+ * </pre>
+ * @param <T> class of the referenced object
+ */
+public final class LazyReference<T extends BaseClass> {
+    /**
+     * Referenced id, used until the object is loaded
+     */
+    private final int id;
+    /**
+     * Loader of the read that produced this reference; null for references created by the caller
+     */
+    private final LazyLoader<T> loader;
+    /**
+     * Referenced object once loaded
+     */
+    private volatile T value;
+    /**
+     * Set once the referenced object has been loaded or given
+     */
+    private volatile boolean loaded;
+
+    /**
+     * LazyReference constructor
+     * @param id referenced id
+     * @param loader loader that resolves the reference, or null
+     */
+    LazyReference(int id, LazyLoader<T> loader) {
+        this.id = id;
+        this.loader = loader;
+    }
+
+    /**
+     * Creates a reference to an object that is already at hand
+     * @param value referenced object
+     * @param <T> class of the referenced object
+     * @return loaded reference; null if value is null
+     */
+    public static <T extends BaseClass> LazyReference<T> of(T value) {
+        if(value == null) {
+            return null;
+        }
+        LazyReference<T> reference = new LazyReference<>(value.getId(), null);
+        reference.resolve(value);
+        return reference;
+    }
+
+    /**
+     * Creates a reference from an id alone, for writing a foreign key without loading the referenced row
+     * Such a reference is write-only: it belongs to no read and has no connection to load through, so get() throws;
+     * read the owner again to get a loadable reference
+     * @param id referenced id
+     * @param <T> class of the referenced object
+     * @return unloaded reference
+     */
+    public static <T extends BaseClass> LazyReference<T> ofId(int id) {
+        return new LazyReference<>(id, null);
+    }
+
+    /**
+     * Gets the referenced id without loading the object
+     * @return referenced id
+     */
+    public int getId() {
+        T current = value;
+        return current == null ? id : current.getId();
+    }
+
+    /**
+     * Checks if the referenced object has been loaded
+     * @return true if get() returns without a query
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Gets the referenced object, loading it and the other pending references of its read on first access
+     * @return referenced object; null if it does not exist or could not be loaded
+     * @throws IllegalStateException if the reference was created with ofId and so cannot be loaded
+     */
+    public T get() {
+        if(!loaded) {
+            if(loader == null) {
+                throw new IllegalStateException("Reference to id " + id + " was created with ofId and cannot be loaded");
+            }
+            loader.load(this);
+        }
+        return value;
+    }
+
+    /**
+     * Sets the referenced object once it has been loaded
+     * @param value referenced object, or null if there is no such row
+     */
+    void resolve(T value) {
+        this.value = value;
+        this.loaded = true;
+    }
+
+    @Override
+    public String toString() {
+        return "LazyReference{id=" + getId() + ", loaded=" + loaded + "}";
+    }
+}
@@ -0,0 +1,92 @@
+package com.revature.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tracks the objects already loaded during one read, or for the life of a Session, keyed by class and id,
+ * so each referenced row is fetched once and shared by every object that references it
+ */
+final class LoadContext {
+    /**
+     * Source the reads run through
+     */
+    private final ConnectionSource source;
+    /**
+     * Loaded objects by class and id
+     */
+    private final Map<Class<?>, Map<Integer, Object>> loaded = new HashMap<>();
+    /**
+     * Loaders of the lazy references created by the reads, by referenced class
+     */
+    private final Map<Class<?>, LazyLoader<?>> lazyLoaders = new HashMap<>();
+
+    /**
+     * LoadContext constructor
+     * @param source source the reads run through; lazy references load through it later
+     */
+    LoadContext(ConnectionSource source) {
+        this.source = source;
+    }
+
+    /**
+     * Gets an object that has already been loaded
+     * @param clazz class of the object
+     * @param id primary key
+     * @param <E> type of the object
+     * @return the loaded object, or null if it has not been loaded
+     */
+    <E> E get(Class<E> clazz, int id) {
+        Map<Integer, Object> byId = loaded.get(clazz);
+        return byId == null ? null : clazz.cast(byId.get(id));
+    }
+
+    /**
+     * Records a loaded object
+     * @param clazz class of the object
+     * @param id primary key
+     * @param object loaded object
+     */
+    void put(Class<?> clazz, int id, Object object) {
+        loaded.computeIfAbsent(clazz, (c) -> new HashMap<>()).put(id, object);
+    }
+
+    /**
+     * Forgets a loaded object
+     * @param clazz class of the object
+     * @param id primary key
+     */
+    void remove(Class<?> clazz, int id) {
+        Map<Integer, Object> byId = loaded.get(clazz);
+        if(byId != null) {
+            byId.remove(id);
+        }
+    }
+
+    /**
+     * Gets the loader that batches the lazy references to a class
+     * @param refClass referenced class
+     * @param <E> type of the referenced class
+     * @return loader shared by all references to the class from these reads
+     */
+    @SuppressWarnings("unchecked")
+    <E extends BaseClass> LazyLoader<E> lazyLoader(Class<E> refClass) {
+        return (LazyLoader<E>) lazyLoaders.computeIfAbsent(refClass, (c) -> new LazyLoader<>(refClass, source, this));
+    }
+
+    /**
+     * Checks if the reads run inside a transaction, whose rows must not reach the shared entity caches before it commits
+     * @return true if the reads run through a Transaction
+     */
+    boolean isTransactional() {
+        return source != null && source.isTransactional();
+    }
+
+    /**
+     * Forgets every loaded object and pending lazy reference
+     */
+    void clear() {
+        loaded.clear();
+        lazyLoaders.clear();
+    }
+}
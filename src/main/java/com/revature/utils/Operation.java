@@ -0,0 +1,63 @@
+package com.revature.utils;
+
+/**
+ * Dao operations that metrics are recorded for
+ */
+public enum Operation {
+    /**
+     * insert of a single object; write-behind inserts are recorded under INSERT_ALL
+     */
+    INSERT,
+    /**
+     * insertAll and batched write-behind inserts
+     */
+    INSERT_ALL,
+    /**
+     * upsert
+     */
+    UPSERT,
+    /**
+     * upsertAll
+     */
+    UPSERT_ALL,
+    /**
+     * getById
+     */
+    GET_BY_ID,
+    /**
+     * getByIds
+     */
+    GET_BY_IDS,
+    /**
+     * getAll
+     */
+    GET_ALL,
+    /**
+     * getPage and getPageByOffset
+     */
+    GET_PAGE,
+    /**
+     * Queries built with query(), and getLastRecordOf
+     */
+    QUERY,
+    /**
+     * stream and forEach; the mapping phase lasts until the last chunk is mapped, including the time the caller spends consuming rows
+     */
+    STREAM,
+    /**
+     * updateById and batched write-behind updates
+     */
+    UPDATE,
+    /**
+     * deleteById and batched write-behind deletes
+     */
+    DELETE,
+    /**
+     * deleteByIds
+     */
+    DELETE_BY_IDS,
+    /**
+     * Batched loads of the rows referenced by another entity's foreign keys; these run on the reading operation's connection
+     */
+    FOREIGN_KEY_LOAD
+}
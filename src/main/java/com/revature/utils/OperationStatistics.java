@@ -0,0 +1,119 @@
+package com.revature.utils;
+
+/**
+ * Point-in-time metrics of one operation of one Dao.
+ * Latencies are split into acquiring a connection, executing the statement and mapping rows to objects;
+ * a phase an operation did not go through, such as a cache hit or a write, is not recorded.
+ */
+public class OperationStatistics {
+    /**
+     * Operation the metrics belong to
+     */
+    private final Operation operation;
+    /**
+     * Number of calls
+     */
+    private final long calls;
+    /**
+     * Number of calls that failed
+     */
+    private final long errors;
+    /**
+     * Rows mapped by reads, or written by inserts, updates and deletes
+     */
+    private final long rows;
+    /**
+     * Time spent waiting for a pooled connection
+     */
+    private final LatencySnapshot acquire;
+    /**
+     * Time spent executing statements
+     */
+    private final LatencySnapshot execute;
+    /**
+     * Time spent mapping rows, including loading foreign keys
+     */
+    private final LatencySnapshot mapping;
+
+    /**
+     * OperationStatistics constructor
+     * @param operation operation the metrics belong to
+     * @param calls number of calls
+     * @param errors number of failed calls
+     * @param rows rows mapped or written
+     * @param acquire connection acquisition latencies
+     * @param execute statement execution latencies
+     * @param mapping row mapping latencies
+     */
+    OperationStatistics(Operation operation, long calls, long errors, long rows, LatencySnapshot acquire, LatencySnapshot execute, LatencySnapshot mapping) {
+        this.operation = operation;
+        this.calls = calls;
+        this.errors = errors;
+        this.rows = rows;
+        this.acquire = acquire;
+        this.execute = execute;
+        this.mapping = mapping;
+    }
+
+    /**
+     * Gets the operation the metrics belong to
+     * @return operation
+     */
+    public Operation getOperation() {
+        return operation;
+    }
+
+    /**
+     * Gets the number of calls
+     * @return call count
+     */
+    public long getCalls() {
+        return calls;
+    }
+
+    /**
+     * Gets the number of calls that failed
+     * @return error count
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * Gets the number of rows mapped by reads, or written by inserts, updates and deletes
+     * @return row count
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * Gets the time spent waiting for a pooled connection; high values mean the pool is too small
+     * @return connection acquisition latencies
+     */
+    public LatencySnapshot getAcquire() {
+        return acquire;
+    }
+
+    /**
+     * Gets the time spent executing statements
+     * @return statement execution latencies
+     */
+    public LatencySnapshot getExecute() {
+        return execute;
+    }
+
+    /**
+     * Gets the time spent mapping rows to objects, including loading foreign keys
+     * @return row mapping latencies
+     */
+    public LatencySnapshot getMapping() {
+        return mapping;
+    }
+
+    @Override
+    public String toString() {
+        return "OperationStatistics{operation=" + operation + ", calls=" + calls + ", errors=" + errors + ", rows=" + rows +
+                ", acquire=" + acquire + ", execute=" + execute + ", mapping=" + mapping + "}";
+    }
+}
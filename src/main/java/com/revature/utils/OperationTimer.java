@@ -0,0 +1,148 @@
+package com.revature.utils;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times one Dao call, split into connection acquisition, statement execution and row mapping.
+ * Each phase ends when the call marks it; phases that are never marked are not recorded.
+ * The call is counted when the timer is closed, and recorded in the slow query log if it took too long.
+ */
+final class OperationTimer implements AutoCloseable {
+    /**
+     * Metrics the call is recorded in
+     */
+    private final DaoMetrics.OperationMetrics metrics;
+    /**
+     * Operation and table of the call, for the slow query log
+     */
+    private final Operation operation;
+    private final String tableName;
+    /**
+     * Slow query log the call is checked against; null if slow calls are not logged
+     */
+    private final SlowQueryLog slowQueryLog;
+    /**
+     * Start of the call, and the end of each phase; 0 if the phase was not marked
+     */
+    private final long started;
+    private long acquired;
+    private long executed;
+    private long mapped;
+    /**
+     * Statement run by the call, its parameter count, and its parameter values if they were captured
+     */
+    private String sql;
+    private int parameterCount;
+    private List<Object> params;
+    /**
+     * Rows mapped or written by the call
+     */
+    private long rows;
+
+    /**
+     * OperationTimer constructor
+     * @param metrics metrics the call is recorded in
+     * @param operation operation being called
+     * @param tableName table of the Dao
+     * @param slowQueryLog slow query log, or null
+     */
+    OperationTimer(DaoMetrics.OperationMetrics metrics, Operation operation, String tableName, SlowQueryLog slowQueryLog) {
+        this.metrics = metrics;
+        this.operation = operation;
+        this.tableName = tableName;
+        this.slowQueryLog = slowQueryLog;
+        this.started = System.nanoTime();
+    }
+
+    /**
+     * Marks the end of connection acquisition
+     * @param conn connection that was acquired
+     * @return the same connection
+     */
+    Connection connected(Connection conn) {
+        acquired = System.nanoTime();
+        return conn;
+    }
+
+    /**
+     * Records the statement run by the call; parameter values are not kept
+     * @param sql parameterized statement
+     * @param parameterCount number of bound parameters
+     */
+    void statement(String sql, int parameterCount) {
+        this.sql = sql;
+        this.parameterCount = parameterCount;
+        this.params = null;
+    }
+
+    /**
+     * Records the statement run by the call with its parameter values, so its plan can be captured if it is slow
+     * @param sql parameterized statement
+     * @param params bound parameter values
+     */
+    void statement(String sql, List<Object> params) {
+        this.sql = sql;
+        this.parameterCount = params.size();
+        this.params = params;
+    }
+
+    /**
+     * Marks the end of statement execution
+     */
+    void executed() {
+        executed = System.nanoTime();
+    }
+
+    /**
+     * Marks the end of row mapping; may be called once per chunk, in which case mapping ends with the last chunk
+     * @param rows number of rows mapped
+     */
+    void mapped(int rows) {
+        metrics.rows.add(rows);
+        this.rows += rows;
+        mapped = System.nanoTime();
+    }
+
+    /**
+     * Counts rows written by the call
+     * @param rows number of rows written
+     */
+    void wrote(long rows) {
+        metrics.rows.add(rows);
+        this.rows += rows;
+    }
+
+    /**
+     * Records the call and the phases that were marked
+     */
+    @Override
+    public void close() {
+        long finished = System.nanoTime();
+        metrics.calls.increment();
+        long previous = started;
+        long acquire = 0;
+        long execute = 0;
+        long mapping = 0;
+        if(acquired != 0) {
+            acquire = acquired - previous;
+            metrics.acquire.record(acquire);
+            previous = acquired;
+        }
+        if(executed != 0) {
+            execute = executed - previous;
+            metrics.execute.record(execute);
+            previous = executed;
+        }
+        if(mapped != 0) {
+            mapping = mapped - previous;
+            metrics.mapping.record(mapping);
+        }
+        if(slowQueryLog != null && sql != null && slowQueryLog.isSlow(finished - started)) {
+            slowQueryLog.record(new SlowQuery(System.currentTimeMillis(), tableName, operation, sql, parameterCount, rows,
+                    TimeUnit.NANOSECONDS.toMicros(finished - started), TimeUnit.NANOSECONDS.toMicros(acquire),
+                    TimeUnit.NANOSECONDS.toMicros(execute), TimeUnit.NANOSECONDS.toMicros(mapping)), params);
+        }
+    }
+}
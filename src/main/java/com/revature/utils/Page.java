@@ -0,0 +1,59 @@
+package com.revature.utils;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of results along with the token that continues after it
+ * @param <T> type of the objects in the page
+ */
+public class Page<T> {
+    /**
+     * Objects in the page
+     */
+    private final List<T> items;
+    /**
+     * Token to pass back to get the following page; null when there is none
+     */
+    private final String nextToken;
+    /**
+     * Whether more rows follow this page
+     */
+    private final boolean hasNext;
+
+    /**
+     * Page constructor
+     * @param items objects in the page
+     * @param nextToken token for the following page, or null
+     * @param hasNext true if more rows follow this page
+     */
+    Page(List<T> items, String nextToken, boolean hasNext) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextToken = nextToken;
+        this.hasNext = hasNext;
+    }
+
+    /**
+     * Gets the objects in the page
+     * @return objects in page order
+     */
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * Gets the continuation token
+     * @return token for the following page, or null if this is the last page
+     */
+    public String getNextToken() {
+        return nextToken;
+    }
+
+    /**
+     * Checks if more rows follow this page
+     * @return true if there is a following page
+     */
+    public boolean hasNext() {
+        return hasNext;
+    }
+}
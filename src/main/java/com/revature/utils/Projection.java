@@ -0,0 +1,121 @@
+package com.revature.utils;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Maps rows of selected columns into a lightweight result type instead of an entity.
+ * A type with a constructor taking exactly one argument per selected column, such as a record, is built through it
+ * with the columns in select order. Otherwise the type needs a no-arg constructor and a field per selected column,
+ * named after either the column or the entity field mapped to it. Foreign keys are mapped as the referenced id.
+ * @param <R> result type
+ */
+final class Projection<R> {
+    /**
+     * Constructor the results are built with
+     */
+    private final Constructor<R> constructor;
+    /**
+     * Types of the constructor arguments, one per column; null when results are filled through fields
+     */
+    private final Class<?>[] parameterTypes;
+    /**
+     * Fields written from the columns, in select order; null when results are built through the constructor
+     */
+    private final Field[] fields;
+
+    /**
+     * Projection constructor
+     * @param type result type
+     * @param columns selected column names in order
+     * @param descriptor mapping metadata of the entity the columns belong to
+     * @throws IllegalArgumentException if the type cannot hold the selected columns
+     */
+    @SuppressWarnings("unchecked")
+    Projection(Class<R> type, List<String> columns, EntityDescriptor<?> descriptor) {
+        Constructor<R> byArguments = null;
+        for(Constructor<?> candidate : type.getDeclaredConstructors()) {
+            if(candidate.getParameterCount() == columns.size()) {
+                if(byArguments != null) {
+                    byArguments = null;
+                    break;
+                }
+                byArguments = (Constructor<R>) candidate;
+            }
+        }
+        try {
+            if(byArguments != null && !columns.isEmpty()) {
+                constructor = byArguments;
+                parameterTypes = byArguments.getParameterTypes();
+                fields = null;
+            } else {
+                constructor = type.getDeclaredConstructor();
+                parameterTypes = null;
+                fields = new Field[columns.size()];
+                for(int i = 0; i < fields.length; i++) {
+                    fields[i] = fieldFor(type, columns.get(i), descriptor);
+                    fields[i].setAccessible(true);
+                }
+            }
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException(type.getName() + " needs a constructor taking " + columns.size() +
+                    " arguments or a no-arg constructor", e);
+        }
+        constructor.setAccessible(true);
+    }
+
+    /**
+     * Builds a result from the current row; the selected columns are expected at positions 1 to n in select order
+     * @param rs result set positioned on the row
+     * @return result
+     * @throws SQLException if a column cannot be read
+     */
+    R read(ResultSet rs) throws SQLException {
+        try {
+            if(fields == null) {
+                Object[] args = new Object[parameterTypes.length];
+                for(int i = 0; i < args.length; i++) {
+                    Object value = ColumnDescriptor.coerce(rs.getObject(i + 1), parameterTypes[i]);
+                    args[i] = value == null && parameterTypes[i].isPrimitive() ? Array.get(Array.newInstance(parameterTypes[i], 1), 0) : value;
+                }
+                return constructor.newInstance(args);
+            }
+            R result = constructor.newInstance();
+            for(int i = 0; i < fields.length; i++) {
+                Object value = ColumnDescriptor.coerce(rs.getObject(i + 1), fields[i].getType());
+                if(value != null || !fields[i].getType().isPrimitive()) {
+                    fields[i].set(result, value);
+                }
+            }
+            return result;
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Could not build " + constructor.getDeclaringClass().getName(), e);
+        }
+    }
+
+    /**
+     * Finds the field of the result type that receives a column
+     * @param type result type
+     * @param columnName selected column
+     * @param descriptor mapping metadata of the entity
+     * @return field named after the column or after the entity field mapped to it
+     * @throws IllegalArgumentException if the type has no such field
+     */
+    private static Field fieldFor(Class<?> type, String columnName, EntityDescriptor<?> descriptor) {
+        ColumnDescriptor column = descriptor.getColumn(columnName);
+        String fieldName = column == null ? columnName : column.getField().getName();
+        for(Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for(Field field : c.getDeclaredFields()) {
+                if(field.getName().equals(columnName) || field.getName().equals(fieldName)) {
+                    return field;
+                }
+            }
+        }
+        throw new IllegalArgumentException(type.getName() + " has no field for column " + columnName);
+    }
+}
@@ -0,0 +1,225 @@
+package com.revature.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Fluent, parameterized query against the table of a Dao.
+ * Conditions added with where() are joined with AND; use Criteria.or() for alternatives.
+ * <pre>
+ *     List&lt;Task&gt; tasks = taskDao.query()
+ *             .where(Criteria.eq("complete", false))
+ *             .where(Criteria.or(Criteria.lt("priority", 3), Criteria.isNull("due_date")))
+ *             .orderBy("priority")
+ *             .limit(20)
+ *             .list(connectionSource);
+ * </pre>
+ * select() restricts the columns that are read, into partially populated entities or, with listAs(), into a result type:
+ * <pre>
+ *     List&lt;TaskTitle&gt; titles = taskDao.query()
+ *             .select("title", "due_date")
+ *             .listAs(connectionSource, TaskTitle.class);
+ * </pre>
+ * @param <T> type of the objects returned
+ */
+public class Query<T> {
+    /**
+     * Dao the query runs against
+     */
+    private final Dao<T> dao;
+    /**
+     * Conditions joined with AND
+     */
+    private final List<Criteria> conditions = new ArrayList<>();
+    /**
+     * Selected columns, or null to select every column
+     */
+    private List<String> columns;
+    /**
+     * ORDER BY terms
+     */
+    private final List<String> orderBy = new ArrayList<>();
+    /**
+     * Maximum number of rows, or -1 for no limit
+     */
+    private int limit = -1;
+
+    /**
+     * Query constructor
+     * @param dao Dao the query runs against
+     */
+    Query(Dao<T> dao) {
+        this.dao = dao;
+    }
+
+    /**
+     * Adds a condition; all conditions must match
+     * @param criteria condition to add
+     * @return this query
+     */
+    public Query<T> where(Criteria criteria) {
+        conditions.add(criteria);
+        return this;
+    }
+
+    /**
+     * Selects only some columns; list() then returns entities with the other columns left unset
+     * Update such entities only with dirty tracking on, so the unset columns are not written back
+     * @param columnNames column names
+     * @return this query
+     */
+    public Query<T> select(String... columnNames) {
+        for(String columnName : columnNames) {
+            dao.checkColumn(columnName);
+        }
+        columns = new ArrayList<>(Arrays.asList(columnNames));
+        return this;
+    }
+
+    /**
+     * Orders the results by a column, ascending
+     * @param columnName column name
+     * @return this query
+     */
+    public Query<T> orderBy(String columnName) {
+        orderBy.add(dao.checkColumn(columnName));
+        return this;
+    }
+
+    /**
+     * Orders the results by a column, descending
+     * @param columnName column name
+     * @return this query
+     */
+    public Query<T> orderByDescending(String columnName) {
+        orderBy.add(dao.checkColumn(columnName) + " DESC");
+        return this;
+    }
+
+    /**
+     * Limits the number of rows returned
+     * @param limit maximum number of rows
+     * @return this query
+     */
+    public Query<T> limit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * Runs the query
+     * @param connectionSource instance of the database connection
+     * @return the matching objects
+     */
+    public List<T> list(ConnectionSource connectionSource) {
+        List<Object> params = new ArrayList<>();
+        if(columns == null) {
+            return dao.list(connectionSource, toSql(dao.getSelectColumns(), params, true), params, false);
+        }
+        List<String> selected = new ArrayList<>();
+        selected.add("id");
+        for(String column : columns) {
+            if(!selected.contains(column)) {
+                selected.add(column);
+            }
+        }
+        return dao.list(connectionSource, toSql(String.join(", ", selected), params, true), params, true);
+    }
+
+    /**
+     * Runs the query and maps the selected columns of each row into a result type
+     * The type is built through a constructor taking one argument per column in select order, such as a record's,
+     * or through its no-arg constructor and fields named after the columns or the entity fields mapped to them
+     * @param connectionSource instance of the database connection
+     * @param type result type
+     * @param <R> result type
+     * @return the projected rows
+     * @throws IllegalArgumentException if the type cannot hold the selected columns
+     */
+    public <R> List<R> listAs(ConnectionSource connectionSource, Class<R> type) {
+        List<String> selected = columns;
+        if(selected == null) {
+            selected = Arrays.asList(dao.getSelectColumns().split(", "));
+        }
+        Projection<R> projection = new Projection<>(type, selected, dao.getDescriptor());
+        List<Object> params = new ArrayList<>();
+        return dao.listAs(connectionSource, toSql(String.join(", ", selected), params, true), params, projection);
+    }
+
+    /**
+     * Runs the query and returns the first result
+     * @param connectionSource instance of the database connection
+     * @return the first matching object, or null if none match
+     */
+    public T first(ConnectionSource connectionSource) {
+        int previous = limit;
+        limit = 1;
+        try {
+            List<T> results = list(connectionSource);
+            return results.isEmpty() ? null : results.get(0);
+        } finally {
+            limit = previous;
+        }
+    }
+
+    /**
+     * Counts the matching rows without loading them
+     * @param connectionSource instance of the database connection
+     * @return number of matching rows
+     */
+    public long count(ConnectionSource connectionSource) {
+        List<Object> params = new ArrayList<>();
+        String sql = toSql("COUNT(*)", params, false);
+        return dao.count(connectionSource, sql, params);
+    }
+
+    /**
+     * Runs the query on the asynchronous executor of the connection source
+     * @param connectionSource instance of the database connection
+     * @return future completed with the matching objects
+     */
+    public CompletableFuture<List<T>> listAsync(ConnectionSource connectionSource) {
+        return connectionSource.supplyAsync(() -> list(connectionSource));
+    }
+
+    /**
+     * Counts the matching rows on the asynchronous executor of the connection source
+     * @param connectionSource instance of the database connection
+     * @return future completed with the number of matching rows
+     */
+    public CompletableFuture<Long> countAsync(ConnectionSource connectionSource) {
+        return connectionSource.supplyAsync(() -> count(connectionSource));
+    }
+
+    /**
+     * Renders the query to SQL; values are left as parameters so the same shape is reused for different values
+     * @param selection select list
+     * @param params receives the parameter values in order
+     * @param withOrderAndLimit true to include ORDER BY and LIMIT
+     * @return SQL statement
+     */
+    String toSql(String selection, List<Object> params, boolean withOrderAndLimit) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(selection).append(" FROM ").append(dao.getTableName());
+        if(!conditions.isEmpty()) {
+            sql.append(" WHERE ");
+            for(int i = 0; i < conditions.size(); i++) {
+                if(i > 0) {
+                    sql.append(" AND ");
+                }
+                conditions.get(i).render(dao.getDescriptor(), sql, params);
+            }
+        }
+        if(withOrderAndLimit) {
+            if(!orderBy.isEmpty()) {
+                sql.append(" ORDER BY ").append(String.join(", ", orderBy));
+            }
+            if(limit >= 0) {
+                sql.append(" LIMIT ?");
+                params.add(limit);
+            }
+        }
+        return sql.toString();
+    }
+}
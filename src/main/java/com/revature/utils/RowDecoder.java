@@ -0,0 +1,112 @@
+package com.revature.utils;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads the rows of one statement shape into an entity.
+ * Column positions are resolved by name from the result set metadata once, so rows decode correctly
+ * whatever order the table's columns are in; columns the statement does not return are left unset.
+ */
+final class RowDecoder {
+    /**
+     * 1-based position of the id column
+     */
+    private final int idPosition;
+    /**
+     * Persisted columns of the entity in table order
+     */
+    private final List<ColumnDescriptor> columns;
+    /**
+     * 1-based position of each column in the result set; 0 if the statement does not return it
+     */
+    private final int[] positions;
+
+    /**
+     * RowDecoder constructor
+     * @param descriptor mapping metadata of the entity
+     * @param metaData metadata of a result set of the statement
+     * @throws SQLException if the metadata cannot be read or has no id column
+     */
+    RowDecoder(EntityDescriptor<?> descriptor, ResultSetMetaData metaData) throws SQLException {
+        Map<String, Integer> byLabel = new HashMap<>();
+        for(int i = metaData.getColumnCount(); i >= 1; i--) {
+            byLabel.put(metaData.getColumnLabel(i).toLowerCase(Locale.ROOT), i);
+        }
+        Integer id = byLabel.get("id");
+        if(id == null) {
+            throw new SQLException("Result of " + descriptor.getTableName() + " query has no id column");
+        }
+        idPosition = id;
+        columns = descriptor.getColumns();
+        positions = new int[columns.size()];
+        for(int i = 0; i < positions.length; i++) {
+            Integer position = byLabel.get(columns.get(i).getColumnName().toLowerCase(Locale.ROOT));
+            positions[i] = position == null ? 0 : position;
+        }
+    }
+
+    /**
+     * Reads the id of the current row
+     * @param rs result set positioned on the row
+     * @return primary key
+     * @throws SQLException if the id cannot be read
+     */
+    int readId(ResultSet rs) throws SQLException {
+        return rs.getInt(idPosition);
+    }
+
+    /**
+     * Reads the column values of the current row
+     * @param rs result set positioned on the row
+     * @return column values in table order; foreign keys as referenced ids, missing columns as null
+     * @throws SQLException if a column cannot be read
+     */
+    Object[] readState(ResultSet rs) throws SQLException {
+        Object[] state = new Object[positions.length];
+        for(int i = 0; i < state.length; i++) {
+            int position = positions[i];
+            if(position == 0) {
+                continue;
+            }
+            if(columns.get(i).isForeignKey()) {
+                int reference = rs.getInt(position);
+                state[i] = rs.wasNull() ? null : reference;
+            } else {
+                state[i] = rs.getObject(position);
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Writes the columns of the current row straight into an entity, reading primitive fields without boxing
+     * Foreign keys are collected rather than set
+     * @param rs result set positioned on the row
+     * @param entity entity to write
+     * @param refs receives the referenced id of each foreign key, or null
+     * @throws SQLException if a column cannot be read
+     */
+    void readInto(ResultSet rs, Object entity, Integer[] refs) throws SQLException {
+        int fk = 0;
+        for(int i = 0; i < positions.length; i++) {
+            ColumnDescriptor column = columns.get(i);
+            int position = positions[i];
+            if(column.isForeignKey()) {
+                Integer reference = null;
+                if(position != 0) {
+                    int value = rs.getInt(position);
+                    reference = rs.wasNull() ? null : value;
+                }
+                refs[fk++] = reference;
+            } else if(position != 0) {
+                column.read(rs, position, entity);
+            }
+        }
+    }
+}
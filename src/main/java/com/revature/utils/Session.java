@@ -0,0 +1,105 @@
+package com.revature.utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * A unit of work with its own identity map.
+ * Objects loaded through a Session are remembered by class and id, so loading the same row again,
+ * directly or through a foreign key, returns the same instance without querying the database.
+ * Connections are borrowed from the pool of the wrapped ConnectionSource.
+ * A Session is meant to be used by one thread for the length of one request; it is not thread-safe,
+ * so asynchronous Dao calls made with a Session run on the calling thread and return a completed future.
+ * <pre>
+ *     try (Session session = new Session(connectionSource)) {
+ *         Task task = taskDao.getById(session, 1);
+ *         Task same = taskDao.getById(session, 1);  // no query, same instance
+ *     }
+ * </pre>
+ */
+public class Session extends ConnectionSource {
+    /**
+     * Source whose connection pool the session uses
+     */
+    private final ConnectionSource parent;
+    /**
+     * Objects loaded or written during the session
+     */
+    private final LoadContext identityMap = new LoadContext(this);
+
+    /**
+     * Session constructor
+     * @param parent source whose connection pool the session uses
+     */
+    public Session(ConnectionSource parent) {
+        super(parent.getUrl(), parent.getUsername(), parent.getPassword());
+        this.parent = parent;
+    }
+
+    /**
+     * Gets the source whose connection pool the session uses
+     * @return wrapped connection source
+     */
+    public ConnectionSource getParent() {
+        return parent;
+    }
+
+    /**
+     * Checks if an object is in the identity map
+     * @param clazz class of the object
+     * @param id primary key
+     * @return true if the object has been loaded during the session
+     */
+    public boolean contains(Class<?> clazz, int id) {
+        return identityMap.get(clazz, id) != null;
+    }
+
+    /**
+     * Removes an object from the identity map so the next load reads it from the database
+     * @param object object to evict
+     */
+    public void evict(BaseClass object) {
+        identityMap.remove(object.getClass(), object.getId());
+    }
+
+    /**
+     * Empties the identity map
+     */
+    public void clear() {
+        identityMap.clear();
+    }
+
+    /**
+     * Ends the session and empties its identity map; the connection pool of the wrapped source stays open
+     */
+    @Override
+    public void close() {
+        clear();
+    }
+
+    @Override
+    ConnectionPool getPool() {
+        return parent.getPool();
+    }
+
+    @Override
+    SlowQueryLog getSlowQueryLog() {
+        return parent.getSlowQueryLog();
+    }
+
+    @Override
+    <R> CompletableFuture<R> supplyAsync(Supplier<R> call) {
+        CompletableFuture<R> future = new CompletableFuture<>();
+        try {
+            future.complete(call.get());
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    @Override
+    LoadContext getLoadContext() {
+        return identityMap;
+    }
+}
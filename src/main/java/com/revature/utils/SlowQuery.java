@@ -0,0 +1,173 @@
+package com.revature.utils;
+
+/**
+ * A Dao call that took longer than the slow query threshold.
+ * Statements are kept in their parameterized form, so calls with the same shape can be grouped together.
+ */
+public class SlowQuery {
+    /**
+     * When the call finished, in milliseconds since the epoch
+     */
+    private final long timestamp;
+    /**
+     * Table of the Dao that made the call
+     */
+    private final String tableName;
+    /**
+     * Operation that was called
+     */
+    private final Operation operation;
+    /**
+     * Parameterized statement
+     */
+    private final String sql;
+    /**
+     * Number of bound parameters
+     */
+    private final int parameterCount;
+    /**
+     * Rows mapped or written
+     */
+    private final long rows;
+    /**
+     * Duration of the call and of each phase, in microseconds
+     */
+    private final long totalMicros;
+    private final long acquireMicros;
+    private final long executeMicros;
+    private final long mappingMicros;
+    /**
+     * Output of EXPLAIN (ANALYZE, BUFFERS), set once the sampled plan has been captured
+     */
+    private volatile String plan;
+
+    /**
+     * SlowQuery constructor
+     * @param timestamp when the call finished
+     * @param tableName table of the Dao
+     * @param operation operation that was called
+     * @param sql parameterized statement
+     * @param parameterCount number of bound parameters
+     * @param rows rows mapped or written
+     * @param totalMicros duration of the call
+     * @param acquireMicros time spent waiting for a connection
+     * @param executeMicros time spent executing the statement
+     * @param mappingMicros time spent mapping rows
+     */
+    SlowQuery(long timestamp, String tableName, Operation operation, String sql, int parameterCount, long rows,
+              long totalMicros, long acquireMicros, long executeMicros, long mappingMicros) {
+        this.timestamp = timestamp;
+        this.tableName = tableName;
+        this.operation = operation;
+        this.sql = sql;
+        this.parameterCount = parameterCount;
+        this.rows = rows;
+        this.totalMicros = totalMicros;
+        this.acquireMicros = acquireMicros;
+        this.executeMicros = executeMicros;
+        this.mappingMicros = mappingMicros;
+    }
+
+    /**
+     * Gets when the call finished
+     * @return milliseconds since the epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Gets the table of the Dao that made the call
+     * @return table name
+     */
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * Gets the operation that was called
+     * @return operation
+     */
+    public Operation getOperation() {
+        return operation;
+    }
+
+    /**
+     * Gets the parameterized statement
+     * @return SQL with ? placeholders
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * Gets the number of bound parameters
+     * @return parameter count
+     */
+    public int getParameterCount() {
+        return parameterCount;
+    }
+
+    /**
+     * Gets the number of rows mapped or written
+     * @return row count
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * Gets the duration of the call
+     * @return total time in microseconds
+     */
+    public long getTotalMicros() {
+        return totalMicros;
+    }
+
+    /**
+     * Gets the time spent waiting for a pooled connection
+     * @return acquisition time in microseconds
+     */
+    public long getAcquireMicros() {
+        return acquireMicros;
+    }
+
+    /**
+     * Gets the time spent executing the statement
+     * @return execution time in microseconds
+     */
+    public long getExecuteMicros() {
+        return executeMicros;
+    }
+
+    /**
+     * Gets the time spent mapping rows to objects
+     * @return mapping time in microseconds
+     */
+    public long getMappingMicros() {
+        return mappingMicros;
+    }
+
+    /**
+     * Gets the captured query plan
+     * @return output of EXPLAIN (ANALYZE, BUFFERS), or null if the call was not sampled or the plan is not captured yet
+     */
+    public String getPlan() {
+        return plan;
+    }
+
+    /**
+     * Sets the captured query plan
+     * @param plan output of EXPLAIN (ANALYZE, BUFFERS)
+     */
+    void setPlan(String plan) {
+        this.plan = plan;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s took %.1f ms (acquire %.1f ms, execute %.1f ms, mapping %.1f ms), %d rows, %d parameters: %s",
+                tableName, operation, totalMicros / 1000.0, acquireMicros / 1000.0, executeMicros / 1000.0,
+                mappingMicros / 1000.0, rows, parameterCount, sql);
+    }
+}
@@ -0,0 +1,188 @@
+package com.revature.utils;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logs Dao calls slower than a threshold and keeps the most recent ones.
+ * A sample of slow SELECT statements is run again with EXPLAIN (ANALYZE, BUFFERS) on a background thread,
+ * and the plan is logged and attached to the slow query. Other statements are never explained, since ANALYZE executes them.
+ */
+final class SlowQueryLog {
+    /**
+     * Logger
+     */
+    private static Logger logger = LogManager.getLogger(SlowQueryLog.class);
+
+    /**
+     * Number of slow queries kept
+     */
+    private static final int CAPACITY = 100;
+    /**
+     * Number of plans that may wait to be captured; further samples are dropped
+     */
+    private static final int EXPLAIN_QUEUE = 16;
+
+    /**
+     * Source whose pool plans are captured on
+     */
+    private final ConnectionSource owner;
+    /**
+     * Calls slower than this are logged, in milliseconds; 0 disables the log
+     */
+    private volatile long thresholdMillis = 0;
+    /**
+     * Share of slow SELECT statements that are explained
+     */
+    private volatile double explainSampleRate = 0;
+    /**
+     * Most recent slow queries, oldest first
+     */
+    private final Deque<SlowQuery> recent = new ArrayDeque<>();
+    /**
+     * Thread plans are captured on, created for the first sampled statement
+     */
+    private ThreadPoolExecutor explainer;
+
+    /**
+     * SlowQueryLog constructor
+     * @param owner source whose pool plans are captured on
+     */
+    SlowQueryLog(ConnectionSource owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * Gets the threshold
+     * @return threshold in milliseconds; 0 when disabled
+     */
+    long getThresholdMillis() {
+        return thresholdMillis;
+    }
+
+    /**
+     * Sets the threshold
+     * @param thresholdMillis threshold in milliseconds; 0 disables the log
+     */
+    void setThresholdMillis(long thresholdMillis) {
+        this.thresholdMillis = thresholdMillis;
+    }
+
+    /**
+     * Gets the share of slow SELECT statements that are explained
+     * @return sample rate between 0 and 1
+     */
+    double getExplainSampleRate() {
+        return explainSampleRate;
+    }
+
+    /**
+     * Sets the share of slow SELECT statements that are explained
+     * @param explainSampleRate sample rate between 0 and 1
+     */
+    void setExplainSampleRate(double explainSampleRate) {
+        this.explainSampleRate = explainSampleRate;
+    }
+
+    /**
+     * Checks if a call took longer than the threshold
+     * @param totalNanos duration of the call
+     * @return true if the call should be recorded
+     */
+    boolean isSlow(long totalNanos) {
+        long threshold = thresholdMillis;
+        return threshold > 0 && totalNanos >= TimeUnit.MILLISECONDS.toNanos(threshold);
+    }
+
+    /**
+     * Logs and keeps a slow call, and samples it for a plan if it is a SELECT
+     * @param query the slow call
+     * @param params bound parameter values, or null if they were not captured
+     */
+    void record(SlowQuery query, List<Object> params) {
+        logger.warn("Slow query: " + query);
+        synchronized (recent) {
+            if(recent.size() >= CAPACITY) {
+                recent.removeFirst();
+            }
+            recent.addLast(query);
+        }
+        if(params != null && query.getSql().startsWith("SELECT") && ThreadLocalRandom.current().nextDouble() < explainSampleRate) {
+            explain(query, params);
+        }
+    }
+
+    /**
+     * Gets the most recent slow queries
+     * @return slow queries, oldest first
+     */
+    List<SlowQuery> getRecent() {
+        synchronized (recent) {
+            return new ArrayList<>(recent);
+        }
+    }
+
+    /**
+     * Stops capturing plans; plans already queued are dropped
+     */
+    synchronized void shutdown() {
+        if(explainer != null) {
+            explainer.shutdownNow();
+            explainer = null;
+        }
+    }
+
+    /**
+     * Queues a slow SELECT to be explained on the background thread
+     * @param query the slow call
+     * @param params bound parameter values
+     */
+    private void explain(SlowQuery query, List<Object> params) {
+        ThreadPoolExecutor executor;
+        synchronized (this) {
+            if(explainer == null) {
+                explainer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(EXPLAIN_QUEUE), (r) -> {
+                    Thread thread = new Thread(r, "ormate-explain");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.DiscardPolicy());
+            }
+            executor = explainer;
+        }
+        executor.execute(() -> capturePlan(query, params));
+    }
+
+    /**
+     * Runs EXPLAIN (ANALYZE, BUFFERS) for a slow SELECT with its original parameters
+     * @param query the slow call
+     * @param params bound parameter values
+     */
+    private void capturePlan(SlowQuery query, List<Object> params) {
+        try (Connection conn = owner.connect(); PreparedStatement ps = conn.prepareStatement("EXPLAIN (ANALYZE, BUFFERS) " + query.getSql())) {
+            Dao.bindParameters(conn, ps, params);
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet rs = ps.executeQuery()) {
+                while(rs.next()) {
+                    plan.append(rs.getString(1)).append(System.lineSeparator());
+                }
+            }
+            query.setPlan(plan.toString());
+            logger.warn("Plan for slow query on " + query.getTableName() + ": " + query.getSql() + System.lineSeparator() + plan);
+        } catch (SQLException | RuntimeException e) {
+            logger.warn("Could not explain slow query: " + query.getSql(), e);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.revature.utils;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A database transaction that can span several Daos.
+ * Every Dao call made with the Transaction in place of a ConnectionSource runs on the same connection,
+ * and nothing is visible to other connections until commit(). Uncommitted work is rolled back on close().
+ * <p>
+ * In write-behind mode inserts, updates and deletes are queued instead of executed, and commit() writes them
+ * as JDBC batches grouped by table, ordered so referenced rows are inserted before the rows that reference them.
+ * Ids of queued inserts are assigned when the queue is flushed.
+ * <pre>
+ *     try (Transaction tx = connectionSource.beginTransaction()) {
+ *         tx.setWriteBehind(true);
+ *         userDao.insert(tx, user);
+ *         taskDao.insert(tx, new Task(user, "first task"));
+ *         tx.commit();
+ *     }
+ * </pre>
+ * Like a Session, a Transaction keeps an identity map and is meant to be used by one thread.
+ */
+public class Transaction extends Session {
+    /**
+     * Logger
+     */
+    private static Logger logger = LogManager.getLogger(Transaction.class);
+
+    /**
+     * Pooled connection the transaction runs on
+     */
+    private final Connection connection;
+    /**
+     * Connection handed to Daos; closing it does not end the transaction
+     */
+    private final Connection shared;
+    /**
+     * Writes queued in write-behind mode
+     */
+    private final WriteQueue queue = new WriteQueue();
+    /**
+     * Cache entries written during the transaction, dropped again once it completes
+     */
+    private final List<Runnable> invalidations = new ArrayList<>();
+    /**
+     * Actions to run once the transaction commits, dropped if it rolls back
+     */
+    private final List<Runnable> commitActions = new ArrayList<>();
+    /**
+     * Whether writes are queued until commit
+     */
+    private boolean writeBehind = false;
+    /**
+     * Set once the transaction has been closed
+     */
+    private boolean closed = false;
+
+    /**
+     * Transaction constructor
+     * Borrows a connection from the parent's pool and turns off auto-commit
+     * @param parent source whose connection pool the transaction uses
+     * @throws IllegalStateException if no connection could be obtained
+     */
+    public Transaction(ConnectionSource parent) {
+        super(parent);
+        Connection conn;
+        try {
+            conn = parent.connect();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not begin transaction; no connection available", e);
+        }
+        try {
+            conn.setAutoCommit(false);
+        } catch (SQLException e) {
+            try {
+                conn.close();
+            } catch (SQLException ignored) {
+            }
+            throw new IllegalStateException("Could not begin transaction", e);
+        }
+        this.connection = conn;
+        this.shared = (Connection) Proxy.newProxyInstance(Transaction.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                    if("close".equals(method.getName())) {
+                        return null;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    /**
+     * Gets the connection of the transaction
+     * @return the shared connection; closing it has no effect
+     * @throws SQLException if the transaction has already been closed
+     */
+    @Override
+    public Connection connect() throws SQLException {
+        if(closed) {
+            throw new SQLException("Transaction has already been closed.");
+        }
+        return shared;
+    }
+
+    /**
+     * Gets the source lazy references load from; the parent once the transaction is closed
+     * @return this transaction while open, otherwise its parent
+     */
+    @Override
+    ConnectionSource getLazyLoadSource() {
+        return closed ? getParent() : this;
+    }
+
+    /**
+     * Checks if writes are queued until commit
+     * @return true in write-behind mode
+     */
+    public boolean isWriteBehind() {
+        return writeBehind;
+    }
+
+    /**
+     * Turns write-behind mode on or off; queued writes are kept when it is turned off and written by the next flush or commit
+     * Queued writes are batched by table: inserts first, referenced tables before the tables referencing them, then updates, then deletes.
+     * An insert or update queued after a delete from the same table is written after that delete, so a deleted unique key can be reused
+     * @param writeBehind true to queue writes until commit
+     */
+    public void setWriteBehind(boolean writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+
+    /**
+     * Writes the queued changes without committing, so later reads in the transaction see them
+     * @return true if the queue was written; false if a statement failed
+     */
+    public boolean flush() {
+        try {
+            queue.flush(this, connection);
+            return true;
+        } catch (SQLException e) {
+            logger.error("Could not flush queued writes.", e);
+        }
+        return false;
+    }
+
+    /**
+     * Writes any queued changes and commits the transaction; the Transaction can then be used for further work
+     * If the flush or commit fails the transaction is rolled back
+     * @return true if the transaction was committed; false if it was rolled back
+     */
+    public boolean commit() {
+        try {
+            queue.flush(this, connection);
+            connection.commit();
+            commitActions.forEach(Runnable::run);
+            commitActions.clear();
+            completed();
+            return true;
+        } catch (SQLException e) {
+            logger.error("Could not commit transaction; rolling back.", e);
+            rollback();
+        }
+        return false;
+    }
+
+    /**
+     * Discards queued changes and rolls back the transaction; the identity map is cleared since loaded objects may no longer match the database
+     * @return true if the transaction was rolled back
+     */
+    public boolean rollback() {
+        queue.clear();
+        commitActions.clear();
+        clear();
+        try {
+            connection.rollback();
+            return true;
+        } catch (SQLException e) {
+            logger.error("Could not roll back transaction.", e);
+        } finally {
+            completed();
+        }
+        return false;
+    }
+
+    /**
+     * Rolls back any uncommitted work and returns the connection to the pool
+     */
+    @Override
+    public void close() {
+        if(closed) {
+            return;
+        }
+        rollback();
+        closed = true;
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.warn("Could not release transaction connection.", e);
+        }
+    }
+
+    /**
+     * Drops the cache entries written during the transaction again, so rows read by other connections before the commit are not kept
+     */
+    private void completed() {
+        invalidations.forEach(Runnable::run);
+        invalidations.clear();
+    }
+
+    @Override
+    boolean isTransactional() {
+        return true;
+    }
+
+    @Override
+    WriteQueue getWriteQueue() {
+        return writeBehind ? queue : null;
+    }
+
+    @Override
+    void afterCompletion(Runnable invalidation) {
+        invalidations.add(invalidation);
+    }
+
+    @Override
+    void afterCommit(Runnable action) {
+        commitActions.add(action);
+    }
+}
@@ -0,0 +1,219 @@
+package com.revature.utils;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Inserts, updates and deletes queued by a write-behind Transaction until it flushes.
+ * Writes are grouped by table so each table is written with as few batched statements as possible.
+ * An insert or update queued after a delete from the same table starts a new group, so the delete is written first
+ * and a row can be deleted and its unique key inserted again in one transaction.
+ */
+final class WriteQueue {
+    /**
+     * Groups of writes in the order they are flushed; the last one receives new writes
+     */
+    private final List<Group> groups = new ArrayList<>();
+    /**
+     * Objects queued for insert, used to fold later updates into the insert
+     */
+    private final Map<Object, Boolean> pendingInserts = new IdentityHashMap<>();
+
+    /**
+     * WriteQueue constructor
+     */
+    WriteQueue() {
+        groups.add(new Group());
+    }
+
+    /**
+     * Queues an insert
+     * @param dao Dao of the object
+     * @param object object to insert
+     */
+    void insert(Dao<?> dao, Object object) {
+        groupAfterDeletes(dao).inserts.computeIfAbsent(dao, (d) -> new ArrayList<>()).add(object);
+        pendingInserts.put(object, Boolean.TRUE);
+    }
+
+    /**
+     * Queues an update; updates to objects that are still queued for insert are written by the insert
+     * @param dao Dao of the object
+     * @param id primary key
+     * @param object updated object
+     */
+    void update(Dao<?> dao, int id, Object object) {
+        if(pendingInserts.containsKey(object)) {
+            return;
+        }
+        dropUpdate(dao, id);
+        groupAfterDeletes(dao).updates.computeIfAbsent(dao, (d) -> new LinkedHashMap<>()).put(id, object);
+    }
+
+    /**
+     * Queues a delete, dropping any queued update of the same row
+     * @param dao Dao of the object
+     * @param id primary key
+     */
+    void delete(Dao<?> dao, int id) {
+        dropUpdate(dao, id);
+        current().deletes.computeIfAbsent(dao, (d) -> new LinkedHashSet<>()).add(id);
+    }
+
+    /**
+     * Checks if any writes are queued
+     * @return true if nothing is queued
+     */
+    boolean isEmpty() {
+        for(Group group : groups) {
+            if(!group.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Drops every queued write
+     */
+    void clear() {
+        groups.clear();
+        groups.add(new Group());
+        pendingInserts.clear();
+    }
+
+    /**
+     * Writes the queued changes on the transaction's connection, one group at a time in the order they were queued.
+     * Within a group, inserts run first with referenced tables before the tables that reference them, so generated ids
+     * are in place before dependent rows are bound; updates follow, and deletes run last, dependent tables first.
+     * @param transaction transaction the writes belong to
+     * @param conn connection of the transaction
+     * @throws SQLException if a statement fails; groups already written are dropped and the rest stay queued
+     */
+    void flush(ConnectionSource transaction, Connection conn) throws SQLException {
+        while(!groups.isEmpty()) {
+            Group group = groups.get(0);
+            group.flush(transaction, conn);
+            for(List<Object> objects : group.inserts.values()) {
+                for(Object object : objects) {
+                    pendingInserts.remove(object);
+                }
+            }
+            groups.remove(0);
+        }
+        clear();
+    }
+
+    /**
+     * Gets the group that receives new writes
+     * @return the last group
+     */
+    private Group current() {
+        return groups.get(groups.size() - 1);
+    }
+
+    /**
+     * Gets the group an insert or update of a table goes to, starting a new one if deletes from the table are queued in the current group
+     * @param dao Dao of the table
+     * @return the group
+     */
+    private Group groupAfterDeletes(Dao<?> dao) {
+        if(current().deletes.containsKey(dao)) {
+            groups.add(new Group());
+        }
+        return current();
+    }
+
+    /**
+     * Drops a queued update of a row from every group
+     * @param dao Dao of the row
+     * @param id primary key
+     */
+    private void dropUpdate(Dao<?> dao, int id) {
+        for(Group group : groups) {
+            Map<Integer, Object> pending = group.updates.get(dao);
+            if(pending != null) {
+                pending.remove(id);
+            }
+        }
+    }
+
+    /**
+     * Appends Daos that have queued writes but are not registered with the DaoManager
+     * @param order Daos in flush order
+     * @param daos Daos with queued writes
+     */
+    private static void addMissing(List<Dao<?>> order, Collection<Dao<?>> daos) {
+        for(Dao<?> dao : daos) {
+            if(!order.contains(dao)) {
+                order.add(dao);
+            }
+        }
+    }
+
+    /**
+     * Writes that can be batched by table without changing their outcome
+     */
+    private static final class Group {
+        /**
+         * Objects to insert, by Dao, in the order they were queued
+         */
+        private final Map<Dao<?>, List<Object>> inserts = new LinkedHashMap<>();
+        /**
+         * Objects to update, by Dao and id; the last update of an id wins
+         */
+        private final Map<Dao<?>, Map<Integer, Object>> updates = new LinkedHashMap<>();
+        /**
+         * Ids to delete, by Dao
+         */
+        private final Map<Dao<?>, Set<Integer>> deletes = new LinkedHashMap<>();
+
+        /**
+         * Checks if the group holds any writes
+         * @return true if nothing is queued in the group
+         */
+        boolean isEmpty() {
+            return inserts.isEmpty() && updates.values().stream().allMatch(Map::isEmpty) && deletes.isEmpty();
+        }
+
+        /**
+         * Writes the group: inserts, then updates, then deletes
+         * @param transaction transaction the writes belong to
+         * @param conn connection of the transaction
+         * @throws SQLException if a statement fails
+         */
+        void flush(ConnectionSource transaction, Connection conn) throws SQLException {
+            List<Dao<?>> order = new ArrayList<>(DaoManager.getDaosInDependencyOrder());
+            addMissing(order, inserts.keySet());
+            addMissing(order, updates.keySet());
+            addMissing(order, deletes.keySet());
+
+            for(Dao<?> dao : order) {
+                List<Object> objects = inserts.get(dao);
+                if(objects != null && !objects.isEmpty()) {
+                    dao.flushInserts(transaction, conn, objects);
+                }
+            }
+            for(Dao<?> dao : order) {
+                Map<Integer, Object> objects = updates.get(dao);
+                if(objects != null && !objects.isEmpty()) {
+                    dao.flushUpdates(transaction, conn, objects);
+                }
+            }
+            for(int i = order.size() - 1; i >= 0; i--) {
+                Set<Integer> ids = deletes.get(order.get(i));
+                if(ids != null && !ids.isEmpty()) {
+                    order.get(i).flushDeletes(transaction, conn, ids);
+                }
+            }
+        }
+    }
+}